@@ -0,0 +1,252 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * Microbenchmarks for the Genome & GeneticAlgorithm hot paths.
+ *
+ * Each benchmark is run for every board size N = 2...5 (& every population size
+ * when it depends on one) as a number of warm-up iterations followed by measured
+ * iterations of ITERATION_NANOS each. Reports the mean time per operation, the
+ * bytes allocated per operation & the allocation rate (from the thread's
+ * allocation counter) & the GC count & time during measurement.
+ *
+ * Run with: mvn -P bench verify [-Dbench.args=filter]
+ * where filter runs only benchmarks whose name contains it.
+ ***********************************************************************************/
+public class Benchmarks {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000L;
+
+    private static final int[] SIZES = {2, 3, 4, 5};
+    private static final int[] POP_SIZES = {1000, 10000};
+
+    // results are written here so the JIT cannot drop the work
+    private static volatile Object sink;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+
+    /********************************************************************************
+     * One operation to time.
+     *******************************************************************************/
+    private interface Operation {
+        Object run() throws Exception;
+    }
+
+
+    /********************************************************************************
+     * Builds the state for a benchmark & returns the operation to time.
+     *******************************************************************************/
+    private interface Setup {
+        Operation create(int N, int popSize) throws Exception;
+    }
+
+
+    /********************************************************************************
+     * Runs the benchmarks.
+     *******************************************************************************/
+    public static void main(String[] args) throws Exception {
+
+        String filter = args.length > 0 ? args[0] : "";
+
+        System.out.println(String.format("%-20s %3s %7s %15s %12s %15s %12s %6s %8s",
+                "benchmark", "N", "pop", "ns/op", "+/-", "B/op", "MB/s", "gc", "gc ms"));
+
+        run(filter, "genomeConstruction", false, (N, popSize) -> {
+            SplittableRandom r = new SplittableRandom(42);
+            return () -> new Genome(N, r);
+        });
+
+        run(filter, "calcFitness", false, (N, popSize) -> {
+            Genome g = new Genome(N, new SplittableRandom(42));
+            return () -> g.calcFitness(N);
+        });
+
+        run(filter, "bitboardFitness", false, (N, popSize) -> {
+            Genome g = new Genome(N, new SplittableRandom(42));
+            return () -> BitboardFitness.countErrors(N, g.getCells(), false);
+        });
+
+        // the original HashSet per line scoring, as a baseline
+        run(filter, "hashSetFitness", false, (N, popSize) -> {
+            Genome g = new Genome(N, new SplittableRandom(42));
+            return () -> hashSetErrors(N, g);
+        });
+
+        run(filter, "mutate", false, (N, popSize) -> {
+            SplittableRandom r = new SplittableRandom(42);
+            Genome g = new Genome(N, r);
+            return () -> {
+                g.mutate(N, r);
+                return g;
+            };
+        });
+
+        run(filter, "crossover", false, (N, popSize) -> {
+            SplittableRandom r = new SplittableRandom(42);
+            Genome parent1 = new Genome(N, r);
+            Genome parent2 = new Genome(N, r);
+            return () -> new Genome(N, parent1, parent2, r.nextInt(N), r.nextInt(N));
+        });
+
+        run(filter, "tournament", true, (N, popSize) -> {
+            SplittableRandom r = new SplittableRandom(42);
+            GeneticAlgorithm genAlg = new GeneticAlgorithm(N, popSize, 1, 42);
+            Genome[] population = genAlg.getPopulation().toArray(new Genome[0]);
+            int[] drawn = new int[5];
+            Genome[] winners = new Genome[2];
+            return () -> {
+                genAlg.tournament(population, population.length, r, drawn, winners);
+                return winners;
+            };
+        });
+
+        run(filter, "grabNBest", true, (N, popSize) -> {
+            GeneticAlgorithm genAlg = new GeneticAlgorithm(N, popSize, 1, 42);
+            ArrayList<Genome> population = new ArrayList<>(genAlg.getPopulation());
+            int onePercent = Math.max(1, popSize / 100);
+            return () -> genAlg.grabNBest(onePercent, 1, population);
+        });
+
+        run(filter, "epoch", true, (N, popSize) -> {
+            GeneticAlgorithm genAlg = new GeneticAlgorithm(N, popSize, 1, 42);
+            return () -> {
+                genAlg.epoch();
+                return genAlg;
+            };
+        });
+
+    }
+
+
+    /********************************************************************************
+     * Counts row & column errors by adding each line's values to a new HashSet.
+     *******************************************************************************/
+    private static int hashSetErrors(int N, Genome g) {
+
+        int nSq = N * N;
+        int error = 0;
+
+        for (int line = 0; line < nSq; line++) {
+            Set<Integer> rowSet = new HashSet<>();
+            Set<Integer> colSet = new HashSet<>();
+            for (int i = 0; i < nSq; i++) {
+                rowSet.add(g.getCell(i, line));
+                colSet.add(g.getCell(line, i));
+            }
+            error += 2 * nSq - rowSet.size() - colSet.size();
+        }
+
+        return error;
+    }
+
+
+    /********************************************************************************
+     * Runs one benchmark over every parameter combination, if it matches the
+     * filter.
+     *******************************************************************************/
+    private static void run(String filter, String name, boolean usesPopulation, Setup setup) throws Exception {
+
+        if (!name.contains(filter)) return;
+
+        for (int N : SIZES) {
+            for (int popSize : usesPopulation ? POP_SIZES : new int[] {0}) {
+                measure(name, N, popSize, setup.create(N, popSize));
+            }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Warms up & measures one operation, then prints a result line.
+     *******************************************************************************/
+    private static void measure(String name, int N, int popSize, Operation op) throws Exception {
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(op);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTime();
+
+        double[] nsPerOp = new double[MEASUREMENT_ITERATIONS];
+        long totalOps = 0;
+        long totalNanos = 0;
+        long totalBytes = 0;
+
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+
+            long bytesBefore = THREADS.getThreadAllocatedBytes(threadId);
+            long startTime = System.nanoTime();
+            long ops = iteration(op);
+            long time = System.nanoTime() - startTime;
+            long bytes = THREADS.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+            nsPerOp[i] = (double) time / ops;
+            totalOps += ops;
+            totalNanos += time;
+            totalBytes += bytes;
+        }
+
+        double mean = (double) totalNanos / totalOps;
+        double variance = 0;
+        for (double x : nsPerOp) {
+            variance += (x - mean) * (x - mean);
+        }
+        double stdDev = Math.sqrt(variance / MEASUREMENT_ITERATIONS);
+
+        double bytesPerOp = (double) totalBytes / totalOps;
+        double allocRate = totalBytes / (totalNanos / 1e9) / (1024 * 1024);
+
+        System.out.println(String.format("%-20s %3d %7s %15.1f %12.1f %15.1f %12.1f %6d %8d",
+                name, N, popSize == 0 ? "-" : Integer.toString(popSize), mean, stdDev, bytesPerOp, allocRate,
+                gcCount() - gcCountBefore, gcTime() - gcTimeBefore));
+
+    }
+
+
+    /********************************************************************************
+     * Repeats the operation for at least ITERATION_NANOS. Returns the count.
+     *******************************************************************************/
+    private static long iteration(Operation op) throws Exception {
+
+        long ops = 0;
+        long startTime = System.nanoTime();
+
+        do {
+            sink = op.run();
+            ops++;
+        } while (System.nanoTime() - startTime < ITERATION_NANOS);
+
+        return ops;
+    }
+
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+}
@@ -0,0 +1,155 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/************************************************************************************
+ * Tunes the operators from the fitness slope & population diversity, measured
+ * every window generations.
+ *
+ * While the best fitness is climbing the operators drift back to their
+ * starting settings. When it stalls, a diverse population gets more selection
+ * pressure to exploit what it has, up to twice the starting tournament size
+ * (a tournament costs about the square of its size). A converged one
+ * (diversity below lowDiversity) gets stronger, more frequent mutation, weaker
+ * selection & a single elite to explore more. If it stays stalled for restartAfter windows,
+ * everything but the elites is replaced with random genomes.
+ ***********************************************************************************/
+public class AdaptivePolicy implements ControlPolicy {
+
+    private final int window;
+    private final double lowDiversity;
+    private final int restartAfter;
+
+    // the settings the algorithm started with, captured on the first call
+    private boolean started;
+    private int baseMutationRate;
+    private int baseTournamentSize;
+    private int baseEliteCount;
+
+    private double windowStartBest;
+    private int stalledWindows;
+    private int restarts;
+
+
+    /********************************************************************************
+     * Constructor. Adjusts every 20 generations & restarts a converged population
+     * after 10 stalled windows.
+     *******************************************************************************/
+    public AdaptivePolicy() {
+        this(20, 0.02, 10);
+    }
+
+
+    public AdaptivePolicy(int window, double lowDiversity, int restartAfter) {
+
+        if (window < 1) throw new IllegalArgumentException("window must be at least 1");
+        if (restartAfter < 1) throw new IllegalArgumentException("restartAfter must be at least 1");
+
+        this.window = window;
+        this.lowDiversity = lowDiversity;
+        this.restartAfter = restartAfter;
+    }
+
+
+    @Override
+    public void adapt(GeneticAlgorithm genAlg) {
+
+        OperatorControls controls = genAlg.getControls();
+
+        if (!started) {
+            started = true;
+            baseMutationRate = controls.getMutationRate();
+            baseTournamentSize = controls.getTournamentSize();
+            baseEliteCount = controls.getEliteCount();
+            windowStartBest = genAlg.getFittestGenome().getFitnessScore();
+        }
+
+        int generation = genAlg.getGeneration();
+        if (generation % window != 0) return;
+
+        double best = genAlg.getFittestGenome().getFitnessScore();
+        double slope = (best - windowStartBest) / window;
+        windowStartBest = best;
+
+        // improving: ease back towards the starting settings
+        if (slope > 0) {
+            stalledWindows = 0;
+            controls.setMutationStrength(controls.getMutationStrength() - 1);
+            controls.setMutationRate(step(controls.getMutationRate(), baseMutationRate, 10));
+            controls.setTournamentSize(step(controls.getTournamentSize(), baseTournamentSize, 1));
+            controls.setEliteCount(baseEliteCount);
+            return;
+        }
+
+        stalledWindows++;
+
+        double diversity = genAlg.summarize(0, generation).getDiversity();
+
+        // stalled but diverse: select harder
+        if (diversity >= lowDiversity) {
+            controls.setTournamentSize(Math.min(2 * baseTournamentSize, controls.getTournamentSize() + 1));
+            return;
+        }
+
+        // stalled & converged: explore, & start over if that does not help
+        if (stalledWindows >= restartAfter) {
+            genAlg.restart();
+            restarts++;
+            stalledWindows = 0;
+            controls.setMutationRate(baseMutationRate);
+            controls.setMutationStrength(1);
+            controls.setTournamentSize(baseTournamentSize);
+            controls.setEliteCount(baseEliteCount);
+            windowStartBest = genAlg.getFittestGenome().getFitnessScore();
+            return;
+        }
+
+        controls.setMutationStrength(controls.getMutationStrength() + 1);
+        controls.setMutationRate(controls.getMutationRate() + 10);
+        controls.setTournamentSize(controls.getTournamentSize() - 1);
+        controls.setEliteCount(1);
+
+    }
+
+
+    /********************************************************************************
+     * Moves value one step of at most stepSize towards target.
+     *******************************************************************************/
+    private static int step(int value, int target, int stepSize) {
+        if (value < target) return Math.min(target, value + stepSize);
+        return Math.max(target, value - stepSize);
+    }
+
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeBoolean(started);
+        out.writeInt(baseMutationRate);
+        out.writeInt(baseTournamentSize);
+        out.writeInt(baseEliteCount);
+        out.writeDouble(windowStartBest);
+        out.writeInt(stalledWindows);
+        out.writeInt(restarts);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        started = in.readBoolean();
+        baseMutationRate = in.readInt();
+        baseTournamentSize = in.readInt();
+        baseEliteCount = in.readInt();
+        windowStartBest = in.readDouble();
+        stalledWindows = in.readInt();
+        restarts = in.readInt();
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getRestarts() {
+        return restarts;
+    }
+
+}
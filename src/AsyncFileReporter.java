@@ -0,0 +1,128 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/************************************************************************************
+ * Writes a GenerationRecord of every Kth generation to a CSV file on a
+ * background thread.
+ *
+ * Records pass through a bounded ring buffer. The solver thread never waits:
+ * if the writer falls so far behind that the buffer is full, the record is
+ * dropped & counted instead.
+ ***********************************************************************************/
+public class AsyncFileReporter implements GenerationReporter {
+
+    private final int interval;
+    private final ArrayBlockingQueue<GenerationRecord> buffer;
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Thread writer;
+    private volatile boolean closed;
+    private final AtomicReference<IOException> writeError = new AtomicReference<>();
+
+
+    /********************************************************************************
+     * Constructor. Reports generations that are a multiple of interval, holding
+     * up to capacity records that have not been written yet.
+     *******************************************************************************/
+    public AsyncFileReporter(Path file, int interval, int capacity) throws IOException {
+
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1");
+        if (capacity < 1) throw new IllegalArgumentException("capacity must be at least 1");
+
+        this.interval = interval;
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+
+        BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        out.write(GenerationRecord.CSV_HEADER);
+        out.write('\n');
+
+        this.writer = new Thread(() -> drain(out), "report-writer");
+        writer.setDaemon(true);
+        writer.start();
+
+    }
+
+
+    @Override
+    public void report(int run, int generation, GeneticAlgorithm genAlg) {
+
+        if (generation % interval != 0) return;
+
+        if (!buffer.offer(genAlg.summarize(run, generation))) dropped.incrementAndGet();
+
+    }
+
+
+    /********************************************************************************
+     * Writer thread. Writes records as they arrive, flushing whenever it has
+     * caught up, until closed & empty.
+     *******************************************************************************/
+    private void drain(BufferedWriter out) {
+
+        List<GenerationRecord> batch = new ArrayList<>();
+
+        try (BufferedWriter w = out) {
+            while (!closed || !buffer.isEmpty()) {
+
+                GenerationRecord first = buffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+
+                batch.add(first);
+                buffer.drainTo(batch);
+
+                for (GenerationRecord record : batch) {
+                    w.write(record.toCsv());
+                    w.write('\n');
+                }
+                batch.clear();
+
+                if (buffer.isEmpty()) w.flush();
+            }
+        } catch (IOException e) {
+            writeError.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Waits for the buffered records to be written & closes the file. Throws if
+     * a write failed.
+     *******************************************************************************/
+    @Override
+    public void close() throws IOException {
+
+        closed = true;
+
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing report", e);
+        }
+
+        if (writeError.get() != null) throw writeError.get();
+
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public long getDropped() {
+        return dropped.get();
+    }
+
+}
@@ -0,0 +1,212 @@
+import java.io.BufferedReader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+
+/************************************************************************************
+ * Solves a stream of puzzles on a pool of worker threads.
+ *
+ * Input has one puzzle per line in PuzzleFormat, optionally preceded by an id &
+ * a tab; puzzles without an id are numbered by line. Each output line is the id,
+ * a tab & either the solution, "unsolved" or "error: " & a message, in input
+ * order. At most maxInFlight puzzles are held in memory at once: the reader
+ * blocks until the writer has caught up. The workers' engines are closed at
+ * the end of each run.
+ ***********************************************************************************/
+public class BatchSolver {
+
+    // marks the end of the input for the writer
+    private static final Future<String> END = new FutureTask<>(() -> null);
+
+    private final Supplier<Solver> engine;
+    private final int numThreads;
+    private final int maxInFlight;
+
+    // stats for the last run
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private long numSolved;
+    private long elapsedTime;
+
+
+    /********************************************************************************
+     * Constructor. Each worker thread gets its own engine from the supplier.
+     *******************************************************************************/
+    public BatchSolver(Supplier<Solver> engine, int numThreads, int maxInFlight) {
+
+        if (numThreads < 1) throw new IllegalArgumentException("numThreads must be at least 1");
+        if (maxInFlight < 1) throw new IllegalArgumentException("maxInFlight must be at least 1");
+
+        this.engine = engine;
+        this.numThreads = numThreads;
+        this.maxInFlight = maxInFlight;
+    }
+
+
+    /********************************************************************************
+     * Solves every puzzle from in, writing results to out in input order.
+     *******************************************************************************/
+    public void run(BufferedReader in, Writer out) throws Exception {
+
+        latency.reset();
+        numSolved = 0;
+
+        List<Solver> engines = new ArrayList<>(); // every worker's, to close at the end
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> {
+            Solver solver = engine.get();
+            synchronized (engines) {
+                engines.add(solver);
+            }
+            return solver;
+        });
+        ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+        BlockingQueue<Future<String>> pending = new ArrayBlockingQueue<>(maxInFlight);
+
+        // write results as they complete, in order; after an error keep draining
+        // so the reader never blocks on a full queue
+        AtomicReference<Exception> writeError = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                for (Future<String> result = pending.take(); result != END; result = pending.take()) {
+                    if (writeError.get() != null) continue;
+                    try {
+                        out.write(result.get());
+                        out.write('\n');
+                    } catch (Exception e) {
+                        writeError.set(e);
+                    }
+                }
+                if (writeError.get() == null) out.flush();
+            } catch (Exception e) {
+                writeError.compareAndSet(null, e);
+            }
+        }, "batch-writer");
+
+        long startTime = System.nanoTime();
+        writer.start();
+
+        try {
+            String line;
+            long lineNumber = 0;
+
+            while ((line = in.readLine()) != null && writeError.get() == null) {
+
+                lineNumber++;
+                if (line.trim().isEmpty()) continue;
+
+                String id = Long.toString(lineNumber);
+                String puzzle = line;
+
+                int tab = line.indexOf('\t');
+                if (tab >= 0) {
+                    id = line.substring(0, tab);
+                    puzzle = line.substring(tab + 1);
+                }
+
+                String puzzleId = id;
+                String puzzleLine = puzzle;
+
+                // blocks while maxInFlight results are waiting to be written
+                pending.put(workers.submit(() -> solveLine(solvers, engines, puzzleId, puzzleLine)));
+            }
+        } finally {
+            pending.put(END);
+            writer.join();
+            workers.shutdown();
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            synchronized (engines) {
+                for (Solver solver : engines) {
+                    solver.close();
+                }
+            }
+        }
+
+        elapsedTime = System.nanoTime() - startTime;
+
+        if (writeError.get() != null) throw writeError.get();
+
+    }
+
+
+    /********************************************************************************
+     * Solves one puzzle on the thread's engine & formats its output line. An
+     * engine that throws may be left mid-solve, so it is closed & the thread
+     * gets a new one for its next puzzle.
+     *******************************************************************************/
+    private String solveLine(ThreadLocal<Solver> solvers, List<Solver> engines, String id, String puzzleLine) {
+
+        long startTime = System.nanoTime();
+        String result;
+
+        try {
+            int[] puzzle = PuzzleFormat.parse(puzzleLine);
+            Solver solver = solvers.get();
+            int[] board;
+
+            try {
+                board = solver.solve(PuzzleFormat.sizeOf(puzzle.length), puzzle);
+            } catch (Exception e) {
+                solvers.remove();
+                synchronized (engines) {
+                    engines.remove(solver);
+                }
+                solver.close();
+                throw e;
+            }
+
+            if (board == null) {
+                result = "unsolved";
+            } else {
+                result = PuzzleFormat.format(board);
+                synchronized (this) {
+                    numSolved++;
+                }
+            }
+        } catch (Exception e) {
+            result = "error: " + e.getMessage();
+        }
+
+        latency.record(System.nanoTime() - startTime);
+
+        return id + "\t" + result;
+    }
+
+
+    /********************************************************************************
+     * Prints throughput & latency percentiles of the last run.
+     *******************************************************************************/
+    public void printStats() {
+
+        double seconds = elapsedTime / 1e9;
+
+        System.err.println("puzzles: " + latency.getCount() + " solved: " + getNumSolved());
+        System.err.println("time (s): " + seconds);
+        System.err.println("throughput (puzzles/s): " + (latency.getCount() / seconds));
+        System.err.println("p50 latency (ns): " + latency.percentile(50));
+        System.err.println("p99 latency (ns): " + latency.percentile(99));
+        System.err.println("max latency (ns): " + latency.getMax());
+
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public synchronized long getNumSolved() {
+        return numSolved;
+    }
+
+}
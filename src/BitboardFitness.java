@@ -0,0 +1,89 @@
+/************************************************************************************
+ * Allocation-free board scoring. Builds a bitmask of the values present in each
+ * row, column &, optionally, box (bit v set for value v) & counts the missing
+ * values of each line with a popcount.
+ *
+ * Masks are ints for boards up to 25x25 (N <= 5) & longs up to 49x49 (N <= 7).
+ ***********************************************************************************/
+public final class BitboardFitness {
+
+    // largest N^2 whose values fit in a long mask
+    public static final int MAX_VALUES = 63;
+
+    private BitboardFitness() {
+    }
+
+
+    /********************************************************************************
+     * Total error of a genome's cells: for every row & column (& box if
+     * includeBoxes), N^2 minus the number of distinct values in it.
+     *******************************************************************************/
+    public static int countErrors(int N, byte[] cells, boolean includeBoxes) {
+
+        int nSq = N * N;
+        if (nSq > MAX_VALUES) throw new IllegalArgumentException("N^2 must be at most " + MAX_VALUES);
+
+        int distinct = 0;
+
+        if (nSq < 32) {
+            for (int line = 0; line < nSq; line++) {
+                int rowMask = 0;
+                int colMask = 0;
+                for (int i = 0; i < nSq; i++) {
+                    rowMask |= 1 << cells[line * nSq + i];
+                    colMask |= 1 << cells[i * nSq + line];
+                }
+                distinct += Integer.bitCount(rowMask) + Integer.bitCount(colMask);
+            }
+        } else {
+            for (int line = 0; line < nSq; line++) {
+                long rowMask = 0;
+                long colMask = 0;
+                for (int i = 0; i < nSq; i++) {
+                    rowMask |= 1L << cells[line * nSq + i];
+                    colMask |= 1L << cells[i * nSq + line];
+                }
+                distinct += Long.bitCount(rowMask) + Long.bitCount(colMask);
+            }
+        }
+
+        int numLines = 2 * nSq;
+
+        if (includeBoxes) {
+            for (int box = 0; box < nSq; box++) {
+                int rowStart = (box / N) * N;
+                int colStart = (box % N) * N;
+                long boxMask = 0;
+                for (int row = rowStart; row < rowStart + N; row++) {
+                    for (int col = colStart; col < colStart + N; col++) {
+                        boxMask |= 1L << cells[row * nSq + col];
+                    }
+                }
+                distinct += Long.bitCount(boxMask);
+            }
+            numLines += nSq;
+        }
+
+        return numLines * nSq - distinct;
+    }
+
+
+    /********************************************************************************
+     * True if a row-major board (as returned by a Solver) has every value
+     * 1...N^2 exactly once in every row, column & box.
+     *******************************************************************************/
+    public static boolean isSolved(int N, int[] board) {
+
+        int nSq = N * N;
+        if (board == null || board.length != nSq * nSq) return false;
+
+        byte[] cells = new byte[board.length];
+        for (int i = 0; i < board.length; i++) {
+            if (board[i] < 1 || board[i] > nSq) return false;
+            cells[i] = (byte) board[i];
+        }
+
+        return countErrors(N, cells, true) == 0;
+    }
+
+}
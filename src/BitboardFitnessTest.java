@@ -0,0 +1,62 @@
+import org.junit.Test;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class BitboardFitnessTest {
+
+    @Test
+    public void testMatchesHashSetCount() {
+
+        SplittableRandom r = new SplittableRandom(7);
+
+        for (int N = 2; N <= 7; N++) {
+
+            int nSq = N * N;
+            Genome g = new Genome(N, r);
+
+            // count row & column errors the slow way
+            int expected = 0;
+            for (int line = 0; line < nSq; line++) {
+                Set<Integer> rowSet = new HashSet<>();
+                Set<Integer> colSet = new HashSet<>();
+                for (int i = 0; i < nSq; i++) {
+                    rowSet.add(g.getCell(i, line));
+                    colSet.add(g.getCell(line, i));
+                }
+                expected += 2 * nSq - rowSet.size() - colSet.size();
+            }
+
+            assertEquals(expected, BitboardFitness.countErrors(N, g.getCells(), false));
+        }
+
+    }
+
+    @Test
+    public void testIsSolved() {
+
+        // valid 4x4 board
+        int[] board = {
+                1, 2, 3, 4,
+                3, 4, 1, 2,
+                2, 1, 4, 3,
+                4, 3, 2, 1
+        };
+        assertTrue(BitboardFitness.isSolved(2, board));
+
+        // rows & columns are fine but the boxes repeat values
+        int[] badBoxes = {
+                1, 2, 3, 4,
+                2, 3, 4, 1,
+                3, 4, 1, 2,
+                4, 1, 2, 3
+        };
+        assertFalse(BitboardFitness.isSolved(2, badBoxes));
+
+    }
+
+}
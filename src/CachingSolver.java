@@ -0,0 +1,71 @@
+/************************************************************************************
+ * Solver that answers from a SolutionCache before running its engine.
+ *
+ * Puzzles are looked up by CanonicalForm, so a puzzle hits if any relabeled,
+ * band or stack reordered or transposed copy of it was solved before; the
+ * cached solution is mapped back through the puzzle's own transformation.
+ * Only solutions are cached. Several CachingSolvers, one per worker thread,
+ * can share one cache.
+ ***********************************************************************************/
+public class CachingSolver implements Solver {
+
+    private final Solver engine;
+    private final SolutionCache cache;
+
+
+    /********************************************************************************
+     * Constructor.
+     *******************************************************************************/
+    public CachingSolver(Solver engine, SolutionCache cache) {
+        this.engine = engine;
+        this.cache = cache;
+    }
+
+
+    @Override
+    public int[] solve(int N, int[] puzzle) throws Exception {
+        return solve(N, puzzle, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+
+    /********************************************************************************
+     * Solves a puzzle from the cache, or with the engine within the budget &
+     * caches the solution.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle, int maxGenerations, long timeLimit) throws Exception {
+
+        CanonicalForm form = CanonicalForm.of(N, puzzle);
+        byte[] key = form.key();
+
+        byte[] cached = cache.get(key);
+        if (cached != null) return form.fromCanonical(CanonicalForm.fromBytes(cached));
+
+        int[] board = engine.solve(N, puzzle, maxGenerations, timeLimit);
+        if (board != null) cache.put(key, CanonicalForm.toBytes(form.toCanonical(board)));
+
+        return board;
+    }
+
+
+    /********************************************************************************
+     * Closes the engine. The cache is shared, so its owner closes it.
+     *******************************************************************************/
+    @Override
+    public void close() {
+        engine.close();
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public Solver getEngine() {
+        return engine;
+    }
+
+    public SolutionCache getCache() {
+        return cache;
+    }
+
+}
@@ -0,0 +1,326 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/************************************************************************************
+ * The canonical form of a puzzle under the symmetries that map sudoku
+ * solutions to sudoku solutions: relabeling the digits, reordering the bands
+ * (rows of units), reordering the stacks (columns of units) & transposing.
+ * Puzzles that are copies of each other under these have the same canonical
+ * form, so one solution serves them all: solve the canonical puzzle once &
+ * map its solution back through each puzzle's own transformation.
+ *
+ * The canonical puzzle is the smallest, read row by row, of every layout
+ * tried, with its digits relabeled 1, 2, 3... in order of first appearance
+ * (the smallest labeling of a fixed layout). Bands are only tried in orders
+ * that sort them by number of givens, & stacks likewise, since that count
+ * does not change under relabeling; only bands with equal counts are tried in
+ * every order. When ties would need more than MAX_LAYOUTS band & stack orders
+ * together, tied stacks (then bands) keep their puzzle order instead, so the
+ * form is still the same for the same puzzle but may miss some of its copies.
+ * That only happens for boards above 16x16 or puzzles with many tied bands.
+ ***********************************************************************************/
+public class CanonicalForm {
+
+    private static final int MAX_LAYOUTS = 720; // per orientation
+
+    private final int N;
+    private final int nSq;
+
+    // the transformation: canonical cell (row, col) holds the value of puzzle
+    // cell (bandOrder[row / N] * N + row % N, stackOrder[col / N] * N + col % N),
+    // read with rows & columns swapped if transposed, relabeled by digitMap
+    private final boolean transposed;
+    private final int[] bandOrder;
+    private final int[] stackOrder;
+    private final int[] digitMap;
+    private final int[] inverseMap;
+
+    private final int[] cells; // the canonical puzzle
+
+
+    private CanonicalForm(int N, boolean transposed, int[] bandOrder, int[] stackOrder, int[] puzzle) {
+
+        this.N = N;
+        this.nSq = N * N;
+        this.transposed = transposed;
+        this.bandOrder = bandOrder;
+        this.stackOrder = stackOrder;
+
+        // label the digits by first appearance, then the unused ones in order
+        this.digitMap = new int[nSq + 1];
+        this.inverseMap = new int[nSq + 1];
+        int nextLabel = 1;
+        for (int offset = 0; offset < puzzle.length; offset++) {
+            int value = puzzle[source(offset)];
+            if (value != 0 && digitMap[value] == 0) digitMap[value] = nextLabel++;
+        }
+        for (int value = 1; value <= nSq; value++) {
+            if (digitMap[value] == 0) digitMap[value] = nextLabel++;
+            inverseMap[digitMap[value]] = value;
+        }
+
+        this.cells = toCanonical(puzzle);
+    }
+
+
+    /********************************************************************************
+     * The canonical form of a puzzle of order N, row-major with 0 for empty
+     * cells.
+     *******************************************************************************/
+    public static CanonicalForm of(int N, int[] puzzle) {
+
+        int nSq = N * N;
+        if (puzzle.length != nSq * nSq) throw new IllegalArgumentException("puzzle must have "
+                + (nSq * nSq) + " cells");
+
+        for (int value : puzzle) {
+            if (value < 0 || value > nSq) throw new IllegalArgumentException("cell value out of range: " + value);
+        }
+
+        int[] best = null;
+        boolean bestTransposed = false;
+        int[] bestBandOrder = null;
+        int[] bestStackOrder = null;
+        int[] candidate = new int[puzzle.length];
+        int[] labels = new int[nSq + 1];
+
+        for (int t = 0; t < 2; t++) {
+
+            boolean transposed = t == 1;
+            List<int[]> bandOrders = orders(N, givensPerBand(N, puzzle, !transposed), MAX_LAYOUTS);
+            List<int[]> stackOrders = orders(N, givensPerBand(N, puzzle, transposed),
+                    MAX_LAYOUTS / bandOrders.size());
+
+            for (int[] bandOrder : bandOrders) {
+                for (int[] stackOrder : stackOrders) {
+                    if (relabel(N, puzzle, transposed, bandOrder, stackOrder, labels, candidate, best)) {
+                        best = candidate.clone();
+                        bestTransposed = transposed;
+                        bestBandOrder = bandOrder;
+                        bestStackOrder = stackOrder;
+                    }
+                }
+            }
+        }
+
+        return new CanonicalForm(N, bestTransposed, bestBandOrder, bestStackOrder, puzzle);
+    }
+
+
+    /********************************************************************************
+     * Givens in each band (byRow) or each stack.
+     *******************************************************************************/
+    private static int[] givensPerBand(int N, int[] puzzle, boolean byRow) {
+
+        int nSq = N * N;
+        int[] counts = new int[N];
+
+        for (int offset = 0; offset < puzzle.length; offset++) {
+            if (puzzle[offset] == 0) continue;
+            int line = byRow ? offset / nSq : offset % nSq;
+            counts[line / N]++;
+        }
+
+        return counts;
+    }
+
+
+    /********************************************************************************
+     * Every order of 0...N-1 sorting counts ascending, or just the stable one if
+     * there are more than maxOrders.
+     *******************************************************************************/
+    private static List<int[]> orders(int N, int[] counts, int maxOrders) {
+
+        Integer[] sorted = new Integer[N];
+        for (int i = 0; i < N; i++) {
+            sorted[i] = i;
+        }
+        Arrays.sort(sorted, (a, b) -> Integer.compare(counts[a], counts[b]));
+
+        int[] stable = new int[N];
+        long numOrders = 1;
+        for (int i = 0, tied = 1; i < N; i++) {
+            stable[i] = sorted[i];
+            tied = i > 0 && counts[sorted[i]] == counts[sorted[i - 1]] ? tied + 1 : 1;
+            numOrders *= tied;
+        }
+
+        List<int[]> orders = new ArrayList<>();
+        if (numOrders > maxOrders) {
+            orders.add(stable);
+        } else {
+            permuteTies(stable, counts, 0, orders);
+        }
+
+        return orders;
+    }
+
+
+    /********************************************************************************
+     * Adds every order that permutes runs of equal counts in order from index
+     * from on.
+     *******************************************************************************/
+    private static void permuteTies(int[] order, int[] counts, int from, List<int[]> orders) {
+
+        if (from == order.length) {
+            orders.add(order.clone());
+            return;
+        }
+
+        // the run of equal counts starting at from
+        int end = from + 1;
+        while (end < order.length && counts[order[end]] == counts[order[from]]) end++;
+
+        permuteRun(order, counts, from, end, orders);
+    }
+
+
+    private static void permuteRun(int[] order, int[] counts, int i, int end, List<int[]> orders) {
+
+        if (i == end) {
+            permuteTies(order, counts, end, orders);
+            return;
+        }
+
+        for (int j = i; j < end; j++) {
+            swap(order, i, j);
+            permuteRun(order, counts, i + 1, end, orders);
+            swap(order, i, j);
+        }
+
+    }
+
+
+    private static void swap(int[] a, int i, int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+
+    /********************************************************************************
+     * Writes a layout's cells, relabeled by first appearance, into candidate &
+     * returns whether they are smaller than best (true if best is null). Stops
+     * as soon as a cell is larger, so most layouts are rejected after a few
+     * cells.
+     *******************************************************************************/
+    private static boolean relabel(int N, int[] puzzle, boolean transposed, int[] bandOrder, int[] stackOrder,
+                                   int[] labels, int[] candidate, int[] best) {
+
+        Arrays.fill(labels, 0);
+        int nextLabel = 1;
+        boolean smaller = best == null;
+
+        for (int offset = 0; offset < candidate.length; offset++) {
+
+            int value = puzzle[source(N, transposed, bandOrder, stackOrder, offset)];
+            if (value != 0) {
+                if (labels[value] == 0) labels[value] = nextLabel++;
+                value = labels[value];
+            }
+            candidate[offset] = value;
+
+            if (!smaller) {
+                if (value > best[offset]) return false;
+                if (value < best[offset]) smaller = true;
+            }
+        }
+
+        return smaller;
+    }
+
+
+    /********************************************************************************
+     * The puzzle offset that a canonical offset reads from.
+     *******************************************************************************/
+    private static int source(int N, boolean transposed, int[] bandOrder, int[] stackOrder, int offset) {
+
+        int nSq = N * N;
+        int row = offset / nSq;
+        int col = offset % nSq;
+        int sourceRow = bandOrder[row / N] * N + row % N;
+        int sourceCol = stackOrder[col / N] * N + col % N;
+
+        return transposed ? sourceCol * nSq + sourceRow : sourceRow * nSq + sourceCol;
+    }
+
+
+    private int source(int offset) {
+        return source(N, transposed, bandOrder, stackOrder, offset);
+    }
+
+
+    /********************************************************************************
+     * Maps a board in the puzzle's layout to the canonical layout. The
+     * solution of the puzzle maps to a solution of the canonical puzzle.
+     *******************************************************************************/
+    public int[] toCanonical(int[] board) {
+
+        int[] canonical = new int[board.length];
+        for (int offset = 0; offset < board.length; offset++) {
+            canonical[offset] = digitMap[board[source(offset)]];
+        }
+
+        return canonical;
+    }
+
+
+    /********************************************************************************
+     * Maps a board in the canonical layout back to the puzzle's layout. A
+     * solution of the canonical puzzle maps to a solution of the puzzle.
+     *******************************************************************************/
+    public int[] fromCanonical(int[] canonical) {
+
+        int[] board = new int[canonical.length];
+        for (int offset = 0; offset < canonical.length; offset++) {
+            board[source(offset)] = inverseMap[canonical[offset]];
+        }
+
+        return board;
+    }
+
+
+    /********************************************************************************
+     * The canonical puzzle, one byte per cell, as a cache key.
+     *******************************************************************************/
+    public byte[] key() {
+        return toBytes(cells);
+    }
+
+
+    /********************************************************************************
+     * A board as one byte per cell. Values go up to 225, so they are stored
+     * unsigned.
+     *******************************************************************************/
+    public static byte[] toBytes(int[] board) {
+
+        byte[] bytes = new byte[board.length];
+        for (int i = 0; i < board.length; i++) {
+            bytes[i] = (byte) board[i];
+        }
+
+        return bytes;
+    }
+
+
+    public static int[] fromBytes(byte[] bytes) {
+
+        int[] board = new int[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            board[i] = bytes[i] & 0xFF;
+        }
+
+        return board;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int[] getCells() {
+        return cells.clone();
+    }
+
+}
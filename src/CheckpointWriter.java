@@ -0,0 +1,120 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/************************************************************************************
+ * Writes checkpoints to a file on a background thread, so saving one does not
+ * stall the caller.
+ *
+ * Only the latest checkpoint matters: one handed over while an earlier one is
+ * still waiting to be written replaces it. Each checkpoint goes to a temporary
+ * file that is then moved over the old one, so the file always holds a
+ * complete checkpoint even if the process dies mid-write.
+ ***********************************************************************************/
+public class CheckpointWriter implements AutoCloseable {
+
+    private final Path file;
+    private final Path tempFile;
+
+    // builds the checkpoint waiting to be written, if any
+    private final AtomicReference<Callable<byte[]>> pending = new AtomicReference<>();
+    private final AtomicReference<IOException> writeError = new AtomicReference<>();
+    private final ExecutorService writer;
+
+
+    /********************************************************************************
+     * Constructor.
+     *******************************************************************************/
+    public CheckpointWriter(Path file) {
+
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread t = new Thread(runnable, "checkpoint-writer");
+            t.setDaemon(true);
+            return t;
+        });
+
+    }
+
+
+    /********************************************************************************
+     * Hands a checkpoint to the writer thread & returns at once. Throws the
+     * error of an earlier write that failed.
+     *******************************************************************************/
+    public void save(byte[] checkpoint) throws IOException {
+        save(() -> checkpoint);
+    }
+
+
+    /********************************************************************************
+     * Hands a checkpoint to the writer thread & returns at once; its bytes are
+     * built on the writer thread, & not at all if a later one replaces it. Throws
+     * the error of an earlier write that failed.
+     *******************************************************************************/
+    public void save(Callable<byte[]> checkpoint) throws IOException {
+
+        IOException e = writeError.getAndSet(null);
+        if (e != null) throw e;
+
+        // only schedule a write if none is waiting; a waiting one will pick this up
+        if (pending.getAndSet(checkpoint) == null) writer.execute(this::writePending);
+
+    }
+
+
+    /********************************************************************************
+     * Writes the latest checkpoint handed over.
+     *******************************************************************************/
+    private void writePending() {
+
+        Callable<byte[]> checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) return;
+
+        try {
+            Files.write(tempFile, checkpoint.call());
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            writeError.set(e);
+        } catch (Exception e) {
+            writeError.set(new IOException("could not build checkpoint", e));
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Waits for the last checkpoint to be written. Throws if any write failed.
+     *******************************************************************************/
+    @Override
+    public void close() throws IOException {
+
+        writer.shutdown();
+        try {
+            writer.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while writing checkpoint", e);
+        }
+
+        IOException e = writeError.getAndSet(null);
+        if (e != null) throw e;
+
+    }
+
+
+    /********************************************************************************
+     * Reads the latest checkpoint written to a file, or null if there is none.
+     *******************************************************************************/
+    public static byte[] load(Path file) throws IOException {
+        return Files.exists(file) ? Files.readAllBytes(file) : null;
+    }
+
+}
@@ -0,0 +1,36 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/************************************************************************************
+ * Adapts a GeneticAlgorithm's operators as it runs.
+ *
+ * adapt() is called after every epoch & may change the algorithm's
+ * OperatorControls or call restart(). A policy belongs to one algorithm; any
+ * state it keeps between calls must be saved by writeState so a restored run
+ * continues the same way.
+ ***********************************************************************************/
+public interface ControlPolicy {
+
+    // never changes anything
+    ControlPolicy FIXED = new ControlPolicy() {
+        @Override
+        public void adapt(GeneticAlgorithm genAlg) { }
+    };
+
+
+    /********************************************************************************
+     * Called after each epoch.
+     *******************************************************************************/
+    void adapt(GeneticAlgorithm genAlg);
+
+
+    /********************************************************************************
+     * Saves & restores the policy's state, for checkpoints.
+     *******************************************************************************/
+    default void writeState(DataOutput out) throws IOException { }
+
+    default void readState(DataInput in) throws IOException { }
+
+}
@@ -0,0 +1,182 @@
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * Crossover operators. Each one breeds two children from two parents by
+ * choosing, for every unit, which parent it comes from, so every unit of a
+ * child is a whole unit (a permutation) of one parent. The second child takes
+ * the opposite choice for every unit.
+ *
+ * A band is a row of N units & a stack a column of N units. A child inherits
+ * whole rows from a band crossover & whole columns from a stack crossover, so
+ * those lines keep the error they had in the parent.
+ *
+ * breed() returns the number of cells written to the children beyond a bulk
+ * copy of a parent; see Genome.crossover. It writes its choice of units into
+ * a scratch mask the caller passes in, so breeding allocates nothing.
+ *
+ * Checkpoints store the ordinal, so new operators go at the end.
+ ***********************************************************************************/
+public enum Crossover {
+
+    // the units at or past a random (unit row, unit col) point come from parent 2
+    UNIT("unit") {
+        @Override
+        public int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                         SplittableRandom r, GenomeSet known, boolean[] fromParent2) {
+
+            int crossoverUnitCol = r.nextInt(N);
+            int crossoverUnitRow = r.nextInt(N);
+
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = unit / N >= crossoverUnitRow && unit % N >= crossoverUnitCol;
+            }
+
+            return cross(parent1, parent2, child1, child2, fromParent2, known);
+        }
+    },
+
+    // every unit comes from either parent with equal odds
+    UNIFORM("uniform") {
+        @Override
+        public int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                         SplittableRandom r, GenomeSet known, boolean[] fromParent2) {
+
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = r.nextBoolean();
+            }
+
+            return cross(parent1, parent2, child1, child2, fromParent2, known);
+        }
+    },
+
+    // a random nonempty proper subset of the bands comes from parent 2
+    ROW_BAND("row-band") {
+        @Override
+        public int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                         SplittableRandom r, GenomeSet known, boolean[] fromParent2) {
+
+            long bands = randomProperSubset(N, r);
+
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = (bands & (1L << (unit / N))) != 0;
+            }
+
+            return cross(parent1, parent2, child1, child2, fromParent2, known);
+        }
+    },
+
+    // a random nonempty proper subset of the stacks comes from parent 2
+    COLUMN_STACK("column-stack") {
+        @Override
+        public int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                         SplittableRandom r, GenomeSet known, boolean[] fromParent2) {
+
+            long stacks = randomProperSubset(N, r);
+
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = (stacks & (1L << (unit % N))) != 0;
+            }
+
+            return cross(parent1, parent2, child1, child2, fromParent2, known);
+        }
+    },
+
+    // child 1 takes each band from the parent whose rows in it are missing
+    // fewer values & child 2 each stack from the parent whose columns are;
+    // ties go to a random parent
+    FITNESS_GUIDED("fitness") {
+        @Override
+        public int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                         SplittableRandom r, GenomeSet known, boolean[] fromParent2) {
+
+            long bands = 0;
+            long stacks = 0;
+
+            for (int i = 0; i < N; i++) {
+
+                int rowError1 = 0;
+                int rowError2 = 0;
+                int colError1 = 0;
+                int colError2 = 0;
+                for (int line = i * N; line < i * N + N; line++) {
+                    rowError1 += parent1.rowError(line);
+                    rowError2 += parent2.rowError(line);
+                    colError1 += parent1.colError(line);
+                    colError2 += parent2.colError(line);
+                }
+
+                if (rowError2 < rowError1 || (rowError2 == rowError1 && r.nextBoolean())) bands |= 1L << i;
+                if (colError2 < colError1 || (colError2 == colError1 && r.nextBoolean())) stacks |= 1L << i;
+            }
+
+            // one mask serves both children, refilled in between
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = (bands & (1L << (unit / N))) != 0;
+            }
+            int copied = child1.crossover(parent1, parent2, fromParent2, known);
+
+            for (int unit = 0; unit < N * N; unit++) {
+                fromParent2[unit] = (stacks & (1L << (unit % N))) != 0;
+            }
+            return copied + child2.crossover(parent1, parent2, fromParent2, known);
+        }
+    };
+
+
+    private final String mode;
+
+    Crossover(String mode) {
+        this.mode = mode;
+    }
+
+
+    /********************************************************************************
+     * Breeds two children from two parents into child1 & child2, reusing their
+     * storage. Children whose board is in known copy its score. fromParent2 is
+     * scratch space with room for N^2 units. Called from several worker threads
+     * at once, each with its own children, stream & scratch.
+     *******************************************************************************/
+    public abstract int breed(int N, Genome parent1, Genome parent2, Genome child1, Genome child2,
+                              SplittableRandom r, GenomeSet known, boolean[] fromParent2);
+
+
+    /********************************************************************************
+     * The operator for a mode: "unit", "uniform", "row-band", "column-stack" or
+     * "fitness".
+     *******************************************************************************/
+    public static Crossover forMode(String mode) {
+
+        for (Crossover crossover : values()) {
+            if (crossover.mode.equals(mode)) return crossover;
+        }
+
+        throw new IllegalArgumentException("unknown crossover: " + mode);
+    }
+
+
+    @Override
+    public String toString() {
+        return mode;
+    }
+
+
+    /********************************************************************************
+     * Child 1 takes the marked units from parent 2, child 2 takes them from
+     * parent 1.
+     *******************************************************************************/
+    private static int cross(Genome parent1, Genome parent2, Genome child1, Genome child2,
+                             boolean[] fromParent2, GenomeSet known) {
+        return child1.crossover(parent1, parent2, fromParent2, known)
+                + child2.crossover(parent2, parent1, fromParent2, known);
+    }
+
+
+    /********************************************************************************
+     * A random subset of 0...N-1 as a bit mask, neither empty nor all of them.
+     *******************************************************************************/
+    private static long randomProperSubset(int N, SplittableRandom r) {
+        return 1 + r.nextLong((1L << N) - 2);
+    }
+
+}
@@ -0,0 +1,335 @@
+/************************************************************************************
+ * Knuth's Algorithm X with dancing links, solving sudoku as an exact cover
+ * problem.
+ *
+ * There is one column per constraint (each cell filled, each value once per
+ * row, column & box) and one row per (cell, value) choice, with four nodes each.
+ * The links live in preallocated int arrays rather than node objects.
+ ***********************************************************************************/
+public class DancingLinksSolver implements Solver {
+
+    // board dimensions
+    private int N;
+    private int nSq;
+    private int numCells;
+    private int numColumns;
+
+    // node links; node 0 is the root & nodes 1...numColumns are column headers
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] choice; // (cell * N^2 + value - 1) of the choice a node belongs to
+
+    // number of nodes in each column
+    private int[] size;
+
+    // search state
+    private int[] partial; // first node of each chosen row, by depth
+    private int[] solution;
+    private int solutionCount;
+    private int limit;
+
+    // budget of the current search, checked every TIME_CHECK_NODES nodes
+    private static final int TIME_CHECK_NODES = 1024;
+    private long startTime;
+    private long timeLimit = Long.MAX_VALUE;
+    private long nodes;
+    private boolean timedOut;
+
+
+    /********************************************************************************
+     * Solves a puzzle, returning null if it has no solution.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle) {
+        return solve(N, puzzle, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+
+    /********************************************************************************
+     * Solves a puzzle, returning null if it has no solution or the time limit
+     * passes first. There are no generations, so maxGenerations is ignored.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle, int maxGenerations, long timeLimit) {
+
+        this.timeLimit = timeLimit;
+        try {
+            if (!search(N, puzzle, 1)) return null;
+        } finally {
+            this.timeLimit = Long.MAX_VALUE;
+        }
+        return solution;
+    }
+
+
+    /********************************************************************************
+     * Counts the solutions of a puzzle, stopping once limit have been found.
+     * countSolutions(N, puzzle, 2) == 1 checks that a puzzle is unique.
+     *******************************************************************************/
+    public int countSolutions(int N, int[] puzzle, int limit) {
+
+        search(N, puzzle, limit);
+        return solutionCount;
+    }
+
+
+    /********************************************************************************
+     * Builds the matrix, covers the givens & runs Algorithm X. Returns false if
+     * the givens conflict.
+     *******************************************************************************/
+    private boolean search(int N, int[] puzzle, int limit) {
+
+        build(N);
+
+        if (puzzle.length != numCells) throw new IllegalArgumentException("puzzle must have "
+                + numCells + " cells");
+
+        this.solution = null;
+        this.solutionCount = 0;
+        this.limit = limit;
+        this.startTime = System.nanoTime();
+        this.nodes = 0;
+        this.timedOut = false;
+
+        // check every given before covering any, so a bad value leaves the matrix intact
+        for (int cell = 0; cell < numCells; cell++) {
+            int value = puzzle[cell];
+            if (value < 0 || value > nSq) throw new IllegalArgumentException("cell value out of range: " + value);
+        }
+
+        // select the row of each given
+        int depth = 0;
+        for (int cell = 0; cell < numCells; cell++) {
+
+            int value = puzzle[cell];
+            if (value == 0) continue;
+
+            int node = firstNode(cell * nSq + value - 1);
+
+            // a given whose constraints are already covered conflicts with another
+            for (int j = node; ; ) {
+                if (isCovered(column[j])) {
+                    uncoverGivens(depth);
+                    return false;
+                }
+                j = right[j];
+                if (j == node) break;
+            }
+
+            for (int j = node; ; ) {
+                cover(column[j]);
+                j = right[j];
+                if (j == node) break;
+            }
+            partial[depth++] = node;
+        }
+
+        int givens = depth;
+        algorithmX(depth);
+        uncoverGivens(givens);
+
+        return solutionCount > 0;
+    }
+
+
+    /********************************************************************************
+     * Allocates & links the exact cover matrix for a board size. The matrix is
+     * reused while N stays the same; every search restores the links it changes.
+     *******************************************************************************/
+    private void build(int N) {
+
+        if (left != null && this.N == N) return;
+
+        this.N = N;
+        this.nSq = N * N;
+        this.numCells = nSq * nSq;
+        this.numColumns = 4 * numCells;
+
+        int numChoices = numCells * nSq;
+        int numNodes = 1 + numColumns + 4 * numChoices;
+
+        this.left = new int[numNodes];
+        this.right = new int[numNodes];
+        this.up = new int[numNodes];
+        this.down = new int[numNodes];
+        this.column = new int[numNodes];
+        this.choice = new int[numNodes];
+        this.size = new int[numColumns + 1];
+        this.partial = new int[numCells];
+
+        // root & headers in a circular list
+        for (int c = 0; c <= numColumns; c++) {
+            left[c] = c == 0 ? numColumns : c - 1;
+            right[c] = c == numColumns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+        }
+
+        int node = numColumns + 1;
+
+        for (int cell = 0; cell < numCells; cell++) {
+
+            int row = cell / nSq;
+            int col = cell % nSq;
+            int box = (row / N) * N + col / N;
+
+            for (int v = 0; v < nSq; v++) {
+
+                int[] columns = {
+                        1 + cell,                              // cell is filled
+                        1 + numCells + row * nSq + v,          // value in row
+                        1 + 2 * numCells + col * nSq + v,      // value in column
+                        1 + 3 * numCells + box * nSq + v       // value in box
+                };
+
+                for (int k = 0; k < 4; k++) {
+
+                    int c = columns[k];
+                    int n = node + k;
+
+                    // link into the row
+                    left[n] = node + (k + 3) % 4;
+                    right[n] = node + (k + 1) % 4;
+
+                    // append to the bottom of the column
+                    up[n] = up[c];
+                    down[n] = c;
+                    down[up[c]] = n;
+                    up[c] = n;
+
+                    column[n] = c;
+                    choice[n] = cell * nSq + v;
+                    size[c]++;
+                }
+
+                node += 4;
+            }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * The first node of a choice's row. Rows are laid out in choice order.
+     *******************************************************************************/
+    private int firstNode(int choiceIndex) {
+        return numColumns + 1 + 4 * choiceIndex;
+    }
+
+
+    /********************************************************************************
+     * A column is covered when its header has been unlinked from the header list.
+     *******************************************************************************/
+    private boolean isCovered(int c) {
+        return right[left[c]] != c;
+    }
+
+
+    /********************************************************************************
+     * Recursive search. Picks the column with the fewest nodes & tries each of
+     * its rows in turn. Once the time limit has passed or the thread is
+     * interrupted, unwinds without trying any more rows, restoring the links
+     * as usual.
+     *******************************************************************************/
+    private void algorithmX(int depth) {
+
+        if (++nodes % TIME_CHECK_NODES == 0 && (System.nanoTime() - startTime >= timeLimit
+                || Thread.currentThread().isInterrupted())) timedOut = true;
+        if (timedOut) return;
+
+        if (right[0] == 0) {
+            solutionCount++;
+            if (solution == null) recordSolution(depth);
+            return;
+        }
+
+        // choose the column with the fewest rows
+        int c = right[0];
+        for (int j = right[c]; j != 0; j = right[j]) {
+            if (size[j] < size[c]) c = j;
+        }
+        if (size[c] == 0) return;
+
+        cover(c);
+
+        for (int r = down[c]; r != c && solutionCount < limit && !timedOut; r = down[r]) {
+
+            partial[depth] = r;
+            for (int j = right[r]; j != r; j = right[j]) cover(column[j]);
+
+            algorithmX(depth + 1);
+
+            for (int j = left[r]; j != r; j = left[j]) uncover(column[j]);
+        }
+
+        uncover(c);
+
+    }
+
+
+    private void cover(int c) {
+
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                size[column[j]]--;
+            }
+        }
+
+    }
+
+
+    private void uncover(int c) {
+
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                size[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+
+        right[left[c]] = c;
+        left[right[c]] = c;
+
+    }
+
+
+    /********************************************************************************
+     * Uncovers the columns of the first count selected rows, in reverse order.
+     *******************************************************************************/
+    private void uncoverGivens(int count) {
+
+        for (int d = count - 1; d >= 0; d--) {
+            int node = partial[d];
+            for (int j = left[node]; ; j = left[j]) {
+                uncover(column[j]);
+                if (j == node) break;
+            }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Copies the selected rows into a board.
+     *******************************************************************************/
+    private void recordSolution(int depth) {
+
+        solution = new int[numCells];
+        for (int d = 0; d < depth; d++) {
+            int chosen = choice[partial[d]];
+            solution[chosen / nSq] = chosen % nSq + 1;
+        }
+
+    }
+
+}
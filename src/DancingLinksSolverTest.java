@@ -0,0 +1,82 @@
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+
+public class DancingLinksSolverTest {
+
+    @Test
+    public void testSolvePuzzle() {
+
+        // puzzle & its unique solution
+        String puzzle = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+        String solution = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+        int[] actual = new DancingLinksSolver().solve(3, toBoard(puzzle));
+
+        assertArrayEquals(toBoard(solution), actual);
+
+    }
+
+    @Test
+    public void testCountSolutions() {
+
+        DancingLinksSolver solver = new DancingLinksSolver();
+
+        // there are 288 valid 4x4 boards
+        assertEquals(288, solver.countSolutions(2, new int[16], 1000));
+
+        // counting stops at the limit
+        assertEquals(2, solver.countSolutions(2, new int[16], 2));
+
+        // a proper puzzle has exactly one solution
+        String puzzle = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+        assertEquals(1, solver.countSolutions(3, toBoard(puzzle), 2));
+
+    }
+
+    @Test
+    public void testNoSolution() {
+
+        // two 5's in the first row
+        String puzzle = "55..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+        assertNull(new DancingLinksSolver().solve(3, toBoard(puzzle)));
+
+    }
+
+    @Test
+    public void testReuseAfterBadValue() {
+
+        DancingLinksSolver solver = new DancingLinksSolver();
+
+        // 9 is out of range on a 4x4 board, after two valid givens
+        int[] puzzle = new int[16];
+        puzzle[0] = 1;
+        puzzle[5] = 2;
+        puzzle[10] = 9;
+
+        try {
+            solver.solve(2, puzzle);
+            fail("expected IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+
+        // the same instance still sees every board
+        assertEquals(288, solver.countSolutions(2, new int[16], 1000));
+
+    }
+
+    private static int[] toBoard(String puzzle) {
+        int[] board = new int[puzzle.length()];
+        for (int i = 0; i < board.length; i++) {
+            char c = puzzle.charAt(i);
+            board[i] = c == '.' ? 0 : c - '0';
+        }
+        return board;
+    }
+
+}
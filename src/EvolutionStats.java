@@ -0,0 +1,186 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/************************************************************************************
+ * Totals over the finished runs of an experiment: the best fitness at each
+ * generation & the generations, time & final mutation rate each run took.
+ ***********************************************************************************/
+public class EvolutionStats {
+
+    private final int maxNumberGenerations;
+
+    // sum over runs of the best fitness at each generation
+    private final double[] bestFitness;
+
+    private int numRuns;
+    private double sumGenSolved;
+    private int minGen;
+    private int maxGen;
+    private double sumTimeSolved;
+    private double minTime;
+    private double maxTime;
+    private double sumFinalMutationRate;
+
+
+    /********************************************************************************
+     * Constructor.
+     *******************************************************************************/
+    public EvolutionStats(int maxNumberGenerations) {
+
+        this.maxNumberGenerations = maxNumberGenerations;
+        this.bestFitness = new double[maxNumberGenerations];
+        this.minGen = maxNumberGenerations;
+        this.minTime = Double.MAX_VALUE;
+
+    }
+
+
+    /********************************************************************************
+     * Adds a run's best fitness at one generation.
+     *******************************************************************************/
+    public void recordGeneration(int generation, double best) {
+        bestFitness[generation] += best;
+    }
+
+
+    /********************************************************************************
+     * Adds a finished run. Generations after the last one count as solved.
+     *******************************************************************************/
+    public void recordRun(int generations, long time, int finalMutationRate) {
+
+        // finish filling out results with 1's if ended before max # generations
+        for (int j = generations + 1; j < maxNumberGenerations; j++) {
+            bestFitness[j] += 1.0;
+        }
+
+        numRuns++;
+
+        sumTimeSolved += time;
+        if (time < minTime) minTime = time;
+        if (time > maxTime) maxTime = time;
+
+        sumGenSolved += generations;
+        if (generations < minGen) minGen = generations;
+        if (generations > maxGen) maxGen = generations;
+
+        sumFinalMutationRate += finalMutationRate;
+
+    }
+
+
+    /********************************************************************************
+     * Adds the totals of another set of runs with the same generation limit, such
+     * as a run evolved on another thread. Safe to call from several threads at
+     * once as long as other is no longer being updated.
+     *******************************************************************************/
+    public synchronized void merge(EvolutionStats other) {
+
+        if (other.maxNumberGenerations != maxNumberGenerations) throw new IllegalArgumentException(
+                "cannot merge stats with different generation limits");
+
+        for (int i = 0; i < maxNumberGenerations; i++) {
+            bestFitness[i] += other.bestFitness[i];
+        }
+
+        numRuns += other.numRuns;
+        sumGenSolved += other.sumGenSolved;
+        minGen = Math.min(minGen, other.minGen);
+        maxGen = Math.max(maxGen, other.maxGen);
+        sumTimeSolved += other.sumTimeSolved;
+        minTime = Math.min(minTime, other.minTime);
+        maxTime = Math.max(maxTime, other.maxTime);
+        sumFinalMutationRate += other.sumFinalMutationRate;
+
+    }
+
+
+    /********************************************************************************
+     * Prints the average, min & max time & generations to solve.
+     *******************************************************************************/
+    public void printSummary() {
+
+        System.out.println("Avg time to solve: " + (sumTimeSolved / numRuns));
+        System.out.println("min time " + minTime);
+        System.out.println("max time " + maxTime);
+        System.out.println("Avg gen to solve: " + (sumGenSolved / numRuns));
+        System.out.println("min gen " + minGen);
+        System.out.println("max gen " + maxGen);
+        System.out.println("avg final mut rate: " + (sumFinalMutationRate / numRuns));
+
+    }
+
+
+    /********************************************************************************
+     * Writes the totals, for a checkpoint.
+     *******************************************************************************/
+    public void write(DataOutput out) throws IOException {
+
+        out.writeInt(maxNumberGenerations);
+        for (double sum : bestFitness) {
+            out.writeDouble(sum);
+        }
+
+        out.writeInt(numRuns);
+        out.writeDouble(sumGenSolved);
+        out.writeInt(minGen);
+        out.writeInt(maxGen);
+        out.writeDouble(sumTimeSolved);
+        out.writeDouble(minTime);
+        out.writeDouble(maxTime);
+        out.writeDouble(sumFinalMutationRate);
+
+    }
+
+
+    /********************************************************************************
+     * Reads totals saved by write.
+     *******************************************************************************/
+    public static EvolutionStats read(DataInput in) throws IOException {
+
+        int maxNumberGenerations = in.readInt();
+        if (maxNumberGenerations < 1) throw new IOException("corrupt stats");
+
+        EvolutionStats stats = new EvolutionStats(maxNumberGenerations);
+        for (int i = 0; i < maxNumberGenerations; i++) {
+            stats.bestFitness[i] = in.readDouble();
+        }
+
+        stats.numRuns = in.readInt();
+        stats.sumGenSolved = in.readDouble();
+        stats.minGen = in.readInt();
+        stats.maxGen = in.readInt();
+        stats.sumTimeSolved = in.readDouble();
+        stats.minTime = in.readDouble();
+        stats.maxTime = in.readDouble();
+        stats.sumFinalMutationRate = in.readDouble();
+
+        return stats;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getNumRuns() {
+        return numRuns;
+    }
+
+    public double getAvgGenerations() {
+        return sumGenSolved / numRuns;
+    }
+
+    public double getAvgTime() {
+        return sumTimeSolved / numRuns;
+    }
+
+    public int getMaxNumberGenerations() {
+        return maxNumberGenerations;
+    }
+
+    public double getAverageBestFitness(int generation) {
+        return bestFitness[generation] / numRuns;
+    }
+
+}
@@ -0,0 +1,300 @@
+/************************************************************************************
+ * A deterministic sudoku solver. Fills in naked & hidden singles by constraint
+ * propagation & backtracks on the empty cell with the fewest candidates.
+ *
+ * Candidate sets are bitmasks of N^2 bits (bit v - 1 set when value v is used),
+ * stored in as many longs per row, column & box as the board needs, so any N
+ * is supported.
+ ***********************************************************************************/
+public class ExactSolver implements Solver {
+
+    // board dimensions for the current solve
+    private int N;
+    private int nSq;
+    private int words;
+
+    // cell offsets of every row, column & box
+    private int[][] units;
+
+    // row, column & box of every cell
+    private int[] cellRow;
+    private int[] cellCol;
+    private int[] cellBox;
+
+    // bits for values 1...N^2
+    private long[] allValues;
+
+    // budget of the current solve
+    private long startTime;
+    private long timeLimit;
+
+
+    /********************************************************************************
+     * Solves a puzzle, returning null if it has no solution.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle) {
+        return solve(N, puzzle, Integer.MAX_VALUE, Long.MAX_VALUE);
+    }
+
+
+    /********************************************************************************
+     * Solves a puzzle, returning null if it has no solution or the time limit
+     * passes first. There are no generations, so maxGenerations is ignored.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle, int maxGenerations, long timeLimit) {
+
+        this.startTime = System.nanoTime();
+        this.timeLimit = timeLimit;
+
+        init(N);
+
+        if (puzzle.length != nSq * nSq) throw new IllegalArgumentException("puzzle must have "
+                + (nSq * nSq) + " cells");
+
+        // place the givens
+        State start = new State();
+        for (int cell = 0; cell < puzzle.length; cell++) {
+            int value = puzzle[cell];
+            if (value == 0) continue;
+            if (value < 0 || value > nSq) throw new IllegalArgumentException("cell value out of range: " + value);
+            if (!start.isCandidate(cell, value)) return null;
+            start.place(cell, value);
+        }
+
+        State solution = search(start);
+        return solution == null ? null : solution.board;
+    }
+
+
+    /********************************************************************************
+     * Builds the unit tables for a board size, reusing them if unchanged.
+     *******************************************************************************/
+    private void init(int N) {
+
+        if (units != null && this.N == N) return;
+
+        this.N = N;
+        this.nSq = N * N;
+        this.words = (nSq + 63) >>> 6;
+
+        this.allValues = new long[words];
+        for (int v = 0; v < nSq; v++) {
+            allValues[v >>> 6] |= 1L << (v & 63);
+        }
+
+        // rows, then columns, then boxes
+        this.units = new int[3 * nSq][nSq];
+        this.cellRow = new int[nSq * nSq];
+        this.cellCol = new int[nSq * nSq];
+        this.cellBox = new int[nSq * nSq];
+
+        for (int row = 0; row < nSq; row++) {
+            for (int col = 0; col < nSq; col++) {
+                int cell = row * nSq + col;
+                int box = (row / N) * N + col / N;
+                int inBox = (row % N) * N + col % N;
+                cellRow[cell] = row;
+                cellCol[cell] = col;
+                cellBox[cell] = box;
+                units[row][col] = cell;
+                units[nSq + col][row] = cell;
+                units[2 * nSq + box][inBox] = cell;
+            }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Depth first search. Propagates, then branches on the empty cell with the
+     * fewest candidates. Returns the solved state or null, also once the time
+     * limit has passed or the thread is interrupted.
+     *******************************************************************************/
+    private State search(State state) {
+
+        if (System.nanoTime() - startTime >= timeLimit || Thread.currentThread().isInterrupted()) return null;
+        if (!state.propagate()) return null;
+
+        // find the most constrained empty cell
+        int bestCell = -1;
+        int bestCount = Integer.MAX_VALUE;
+
+        for (int cell = 0; cell < state.board.length; cell++) {
+            if (state.board[cell] != 0) continue;
+            int count = state.candidateCount(cell);
+            if (count < bestCount) {
+                bestCell = cell;
+                bestCount = count;
+            }
+        }
+
+        if (bestCell == -1) return state; // solved
+
+        for (int value = 1; value <= nSq; value++) {
+            if (!state.isCandidate(bestCell, value)) continue;
+
+            State guess = state.copy();
+            guess.place(bestCell, value);
+
+            State solution = search(guess);
+            if (solution != null) return solution;
+        }
+
+        return null;
+    }
+
+
+    /********************************************************************************
+     * A partially filled board & the values used in each row, column & box.
+     *******************************************************************************/
+    private final class State {
+
+        private int[] board;
+        private long[] rowUsed;
+        private long[] colUsed;
+        private long[] boxUsed;
+
+
+        private State() {
+            this.board = new int[nSq * nSq];
+            this.rowUsed = new long[nSq * words];
+            this.colUsed = new long[nSq * words];
+            this.boxUsed = new long[nSq * words];
+        }
+
+
+        private State copy() {
+            State copy = new State();
+            System.arraycopy(board, 0, copy.board, 0, board.length);
+            System.arraycopy(rowUsed, 0, copy.rowUsed, 0, rowUsed.length);
+            System.arraycopy(colUsed, 0, copy.colUsed, 0, colUsed.length);
+            System.arraycopy(boxUsed, 0, copy.boxUsed, 0, boxUsed.length);
+            return copy;
+        }
+
+
+        /****************************************************************************
+         * Word w of the candidate mask of an empty cell.
+         ***************************************************************************/
+        private long candidates(int cell, int w) {
+            return allValues[w] & ~(rowUsed[cellRow[cell] * words + w] | colUsed[cellCol[cell] * words + w]
+                    | boxUsed[cellBox[cell] * words + w]);
+        }
+
+
+        private int candidateCount(int cell) {
+            int count = 0;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(candidates(cell, w));
+            }
+            return count;
+        }
+
+
+        private boolean isCandidate(int cell, int value) {
+            int bit = value - 1;
+            return (candidates(cell, bit >>> 6) & (1L << (bit & 63))) != 0;
+        }
+
+
+        /****************************************************************************
+         * The only candidate of a cell with exactly one candidate.
+         ***************************************************************************/
+        private int singleCandidate(int cell) {
+            for (int w = 0; w < words; w++) {
+                long mask = candidates(cell, w);
+                if (mask != 0) return (w << 6) + Long.numberOfTrailingZeros(mask) + 1;
+            }
+            return 0;
+        }
+
+
+        private void place(int cell, int value) {
+            int row = cellRow[cell];
+            int col = cellCol[cell];
+            int box = cellBox[cell];
+            int bit = value - 1;
+            int w = bit >>> 6;
+            long mask = 1L << (bit & 63);
+
+            board[cell] = value;
+            rowUsed[row * words + w] |= mask;
+            colUsed[col * words + w] |= mask;
+            boxUsed[box * words + w] |= mask;
+        }
+
+
+        /****************************************************************************
+         * Repeatedly fills naked singles (cells with one candidate) & hidden singles
+         * (values with one possible cell in a unit). Returns false on a
+         * contradiction.
+         ***************************************************************************/
+        private boolean propagate() {
+
+            boolean changed = true;
+
+            while (changed) {
+
+                changed = false;
+
+                // naked singles
+                for (int cell = 0; cell < board.length; cell++) {
+                    if (board[cell] != 0) continue;
+                    int count = candidateCount(cell);
+                    if (count == 0) return false;
+                    if (count == 1) {
+                        place(cell, singleCandidate(cell));
+                        changed = true;
+                    }
+                }
+
+                // hidden singles
+                for (int[] unit : units) {
+                    for (int w = 0; w < words; w++) {
+
+                        // values that fit exactly once in the unit, and values already placed
+                        long once = 0;
+                        long twice = 0;
+                        long placed = 0;
+
+                        for (int cell : unit) {
+                            int value = board[cell];
+                            if (value != 0) {
+                                if ((value - 1) >>> 6 == w) placed |= 1L << ((value - 1) & 63);
+                                continue;
+                            }
+                            long mask = candidates(cell, w);
+                            twice |= once & mask;
+                            once |= mask;
+                        }
+
+                        if ((once | placed) != allValues[w]) return false;
+
+                        long hidden = once & ~twice & ~placed;
+
+                        while (hidden != 0) {
+                            int bit = Long.numberOfTrailingZeros(hidden);
+                            hidden &= hidden - 1;
+                            int value = (w << 6) + bit + 1;
+
+                            // the value may have been ruled out by a placement in this pass
+                            for (int cell : unit) {
+                                if (board[cell] == 0 && isCandidate(cell, value)) {
+                                    place(cell, value);
+                                    changed = true;
+                                    break;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            return true;
+        }
+
+    }
+
+}
@@ -0,0 +1,59 @@
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+
+public class ExactSolverTest {
+
+    @Test
+    public void testSolvePuzzle() {
+
+        // puzzle & its unique solution
+        String puzzle = "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+        String solution = "534678912672195348198342567859761423426853791713924856961537284287419635345286179";
+
+        int[] actual = new ExactSolver().solve(3, toBoard(puzzle));
+
+        assertArrayEquals(toBoard(solution), actual);
+
+    }
+
+    @Test
+    public void testSolveEmptyBoards() throws Exception {
+
+        // every size should fill to a board with no errors
+        for (int N = 2; N <= 5; N++) {
+
+            Genome g = new Genome(N);
+            int[] board = new ExactSolver().solve(N, new int[N * N * N * N]);
+
+            for (int i = 0; i < board.length; i++) {
+                g.getCells()[i] = (byte) board[i];
+            }
+
+            assertEquals(1.0, g.calcFitness(N), 0.0001);
+        }
+
+    }
+
+    @Test
+    public void testNoSolution() {
+
+        // two 5's in the first row
+        String puzzle = "55..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+        assertNull(new ExactSolver().solve(3, toBoard(puzzle)));
+
+    }
+
+    private static int[] toBoard(String puzzle) {
+        int[] board = new int[puzzle.length()];
+        for (int i = 0; i < board.length; i++) {
+            char c = puzzle.charAt(i);
+            board[i] = c == '.' ? 0 : c - '0';
+        }
+        return board;
+    }
+
+}
@@ -0,0 +1,285 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+
+/************************************************************************************
+ * Runs the independent runs of an experiment concurrently.
+ *
+ * An experiment is a grid of settings, each evolved numberOfRuns times. Every
+ * run is a single-threaded task on the given executor. Runs are submitted
+ * from the most to the least expensive, so a long run is not left to start
+ * last. Each run keeps its own stats, which are merged into its settings'
+ * totals once all runs have finished.
+ *
+ * Run seeds are drawn from the experiment seed in grid order before anything
+ * is scheduled, so the results do not depend on the executor.
+ ***********************************************************************************/
+public class ExperimentScheduler {
+
+    /********************************************************************************
+     * One point of the parameter grid.
+     *******************************************************************************/
+    public static class Settings {
+
+        private final int N;
+        private final int popSize;
+        private final int tournamentSize;
+        private final int mutationRate;
+
+
+        public Settings(int N, int popSize, int tournamentSize, int mutationRate) {
+            this.N = N;
+            this.popSize = popSize;
+            this.tournamentSize = tournamentSize;
+            this.mutationRate = mutationRate;
+        }
+
+
+        /****************************************************************************
+         * Rough relative cost of a run. An epoch touches every cell of every
+         * genome, & bigger boards take more generations, roughly in proportion
+         * to their number of units.
+         ***************************************************************************/
+        public double estimatedCost() {
+            double nSq = N * N;
+            return (double) popSize * nSq * nSq * nSq;
+        }
+
+
+        public int getN() {
+            return N;
+        }
+
+        public int getPopSize() {
+            return popSize;
+        }
+
+        public int getTournamentSize() {
+            return tournamentSize;
+        }
+
+        public int getMutationRate() {
+            return mutationRate;
+        }
+
+
+        @Override
+        public String toString() {
+            return "N" + N + "-pop" + popSize + "-tour" + tournamentSize + "-mut" + mutationRate;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * A run waiting to be scheduled.
+     *******************************************************************************/
+    private static class PendingRun {
+        final Settings settings;
+        final int run;
+        final long seed;
+
+        PendingRun(Settings settings, int run, long seed) {
+            this.settings = settings;
+            this.run = run;
+            this.seed = seed;
+        }
+    }
+
+
+    /********************************************************************************
+     * What a finished run hands back to be merged.
+     *******************************************************************************/
+    private static class RunResult {
+        Settings settings;
+        int run;
+        EvolutionStats stats;
+        double[] trace; // best fitness of generations 1...generations
+        int generations;
+    }
+
+
+    private final ExecutorService executor;
+    private final int maxNumberGenerations;
+    private final int numberOfRuns;
+    private final long seed;
+
+
+    /********************************************************************************
+     * Constructor. The caller owns & shuts down the executor.
+     *******************************************************************************/
+    public ExperimentScheduler(ExecutorService executor, int maxNumberGenerations, int numberOfRuns, long seed) {
+
+        if (maxNumberGenerations < 2) throw new IllegalArgumentException("maxNumberGenerations must be at least 2");
+        if (numberOfRuns < 1) throw new IllegalArgumentException("numberOfRuns must be at least 1");
+
+        this.executor = executor;
+        this.maxNumberGenerations = maxNumberGenerations;
+        this.numberOfRuns = numberOfRuns;
+        this.seed = seed;
+    }
+
+
+    /********************************************************************************
+     * Every combination of the given values, in nested order.
+     *******************************************************************************/
+    public static List<Settings> grid(int[] Ns, int[] popSizes, int[] tournamentSizes, int[] mutationRates) {
+
+        List<Settings> grid = new ArrayList<>();
+
+        for (int N : Ns) {
+            for (int popSize : popSizes) {
+                for (int tournamentSize : tournamentSizes) {
+                    for (int mutationRate : mutationRates) {
+                        grid.add(new Settings(N, popSize, tournamentSize, mutationRate));
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+
+    /********************************************************************************
+     * Runs every setting of the grid numberOfRuns times & returns the merged
+     * stats of each, in grid order. The same settings must not appear twice. If resultsPrefix is not null, each setting's
+     * runs & averages are also written to resultsPrefix-<settings>.csv by a
+     * ResultsWriter, one run at a time as they finish.
+     *******************************************************************************/
+    public Map<Settings, EvolutionStats> run(List<Settings> grid, String resultsPrefix) throws Exception {
+
+        Map<Settings, EvolutionStats> totals = new LinkedHashMap<>();
+        Map<Settings, EvolutionStats[]> runStats = new LinkedHashMap<>();
+        Map<Settings, ResultsWriter> writers = new LinkedHashMap<>();
+
+        // one seed per run, drawn in grid order
+        SplittableRandom seeds = new SplittableRandom(seed);
+        List<PendingRun> runs = new ArrayList<>();
+
+        for (Settings settings : grid) {
+            totals.put(settings, new EvolutionStats(maxNumberGenerations));
+            runStats.put(settings, new EvolutionStats[numberOfRuns]);
+            for (int run = 0; run < numberOfRuns; run++) {
+                runs.add(new PendingRun(settings, run, seeds.nextLong()));
+            }
+        }
+
+        // most expensive first; the sort is stable, so ties keep grid order
+        runs.sort(Comparator.comparingDouble((PendingRun r) -> r.settings.estimatedCost()).reversed());
+
+        try {
+            if (resultsPrefix != null) {
+                for (Settings settings : grid) {
+                    writers.put(settings, new ResultsWriter(resultsPrefix + "-" + settings + ".csv"));
+                }
+            }
+
+            CompletionService<RunResult> completed = new ExecutorCompletionService<>(executor);
+            List<Future<RunResult>> futures = new ArrayList<>();
+
+            for (PendingRun r : runs) {
+                futures.add(completed.submit(() -> evolve(r.settings, r.run, r.seed)));
+            }
+
+            try {
+                for (int i = 0; i < futures.size(); i++) {
+
+                    RunResult result = completed.take().get();
+                    runStats.get(result.settings)[result.run] = result.stats;
+
+                    ResultsWriter writer = writers.get(result.settings);
+                    if (writer != null) write(writer, result);
+
+                    System.out.println(result.settings + " run " + result.run + " finished after "
+                            + result.generations + " generations");
+                }
+            } finally {
+                for (Future<RunResult> f : futures) {
+                    f.cancel(true);
+                }
+            }
+
+            // merge in run order, so the floating point sums do not depend on
+            // which run finished first
+            for (Settings settings : grid) {
+                for (EvolutionStats stats : runStats.get(settings)) {
+                    totals.get(settings).merge(stats);
+                }
+            }
+
+            for (Map.Entry<Settings, ResultsWriter> entry : writers.entrySet()) {
+                entry.getValue().writeAverages(totals.get(entry.getKey()));
+            }
+        } finally {
+            for (ResultsWriter writer : writers.values()) {
+                writer.close();
+            }
+        }
+
+        return totals;
+    }
+
+
+    /********************************************************************************
+     * Evolves one run until solved or the generation limit.
+     *******************************************************************************/
+    private RunResult evolve(Settings settings, int run, long runSeed) throws Exception {
+
+        long startTime = System.nanoTime();
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(settings.N, null, settings.popSize,
+                settings.tournamentSize, settings.mutationRate, 1, runSeed);
+        EvolutionStats stats = new EvolutionStats(maxNumberGenerations);
+        double[] trace = new double[maxNumberGenerations];
+
+        int generationCounter = 1;
+
+        while (generationCounter < maxNumberGenerations && !genAlg.getSolutionFound()) {
+
+            if (Thread.interrupted()) throw new InterruptedException();
+
+            genAlg.epoch();
+
+            double best = genAlg.getFittestGenome().getFitnessScore();
+            stats.recordGeneration(generationCounter, best);
+            trace[generationCounter] = best;
+
+            if (!genAlg.getSolutionFound()) generationCounter++;
+        }
+
+        stats.recordRun(generationCounter, System.nanoTime() - startTime, genAlg.getMutationRate());
+
+        RunResult result = new RunResult();
+        result.settings = settings;
+        result.run = run;
+        result.stats = stats;
+        result.trace = trace;
+        result.generations = Math.min(generationCounter, maxNumberGenerations - 1);
+        return result;
+    }
+
+
+    /********************************************************************************
+     * Writes a finished run's per-generation results.
+     *******************************************************************************/
+    private static void write(ResultsWriter writer, RunResult result) throws IOException {
+
+        writer.startRun(result.run);
+        for (int generation = 1; generation <= result.generations; generation++) {
+            writer.writeGeneration(generation, result.trace[generation]);
+        }
+        writer.endRun();
+
+    }
+
+}
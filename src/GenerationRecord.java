@@ -0,0 +1,102 @@
+/************************************************************************************
+ * A snapshot of one generation of a run: fitness spread, diversity, crossover
+ * cost & mutation rate.
+ *
+ * Diversity is the average, over all cells, of the fraction of genomes that
+ * disagree with the most common value of the cell: 0 when every genome is the
+ * same board. The unique fraction is the number of distinct boards over the
+ * population size: 1 when no two genomes are the same board. Cells copied is
+ * the average number of cells the generation's crossovers wrote into each
+ * child beyond a bulk copy of a parent (see Genome.crossover).
+ ***********************************************************************************/
+public class GenerationRecord {
+
+    public static final String CSV_HEADER = "run,generation,best fitness,mean fitness,worst fitness,"
+            + "diversity,unique fraction,cells copied per child,mutation rate";
+
+    private final int run;
+    private final int generation;
+    private final double bestFitness;
+    private final double meanFitness;
+    private final double worstFitness;
+    private final double diversity;
+    private final double uniqueFraction;
+    private final double cellsCopied;
+    private final int mutationRate;
+
+
+    /********************************************************************************
+     * Constructor.
+     *******************************************************************************/
+    public GenerationRecord(int run, int generation, double bestFitness, double meanFitness,
+                            double worstFitness, double diversity, double uniqueFraction, double cellsCopied,
+                            int mutationRate) {
+        this.run = run;
+        this.generation = generation;
+        this.bestFitness = bestFitness;
+        this.meanFitness = meanFitness;
+        this.worstFitness = worstFitness;
+        this.diversity = diversity;
+        this.uniqueFraction = uniqueFraction;
+        this.cellsCopied = cellsCopied;
+        this.mutationRate = mutationRate;
+    }
+
+
+    /********************************************************************************
+     * The record as a line of CSV, in CSV_HEADER order.
+     *******************************************************************************/
+    public String toCsv() {
+        return run + "," + generation + "," + bestFitness + "," + meanFitness + "," + worstFitness + ","
+                + diversity + "," + uniqueFraction + "," + cellsCopied + "," + mutationRate;
+    }
+
+
+    @Override
+    public String toString() {
+        return "generation " + generation + " best fitness: " + bestFitness + " mean: " + meanFitness
+                + " worst: " + worstFitness + " diversity: " + diversity
+                + " unique: " + uniqueFraction + " cells copied: " + cellsCopied + " mutation rate: " + mutationRate;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getRun() {
+        return run;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    public double getMeanFitness() {
+        return meanFitness;
+    }
+
+    public double getWorstFitness() {
+        return worstFitness;
+    }
+
+    public double getDiversity() {
+        return diversity;
+    }
+
+    public double getUniqueFraction() {
+        return uniqueFraction;
+    }
+
+    public double getCellsCopied() {
+        return cellsCopied;
+    }
+
+    public int getMutationRate() {
+        return mutationRate;
+    }
+
+}
@@ -0,0 +1,29 @@
+import java.io.IOException;
+
+
+/************************************************************************************
+ * Receives every generation of a run & decides what, if anything, to report.
+ *
+ * Implementations should keep report() cheap: it is called on the solver
+ * thread after every epoch. Summarizing the population scans every genome,
+ * so only do it for generations that are emitted.
+ ***********************************************************************************/
+public interface GenerationReporter extends AutoCloseable {
+
+    // reports nothing
+    GenerationReporter OFF = (run, generation, genAlg) -> { };
+
+
+    /********************************************************************************
+     * Called after each epoch of a run.
+     *******************************************************************************/
+    void report(int run, int generation, GeneticAlgorithm genAlg);
+
+
+    /********************************************************************************
+     * Flushes any buffered output & releases the reporter's resources.
+     *******************************************************************************/
+    @Override
+    default void close() throws IOException { }
+
+}
@@ -1,7 +1,16 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Random;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 
 /************************************************************************************
@@ -9,50 +18,189 @@ import java.util.Random;
  ***********************************************************************************/
 public class GeneticAlgorithm {
 
-    // size of sudoku board
+    // size of sudoku board & the puzzle's fixed cells, null for a blank board
     private int N;
-
-    // GA parameters
-    private final int POP_SIZE = 10000;
-    private final int TOURNAMENT_SIZE = 5;
-    private int mutationRate = 80;
-
-    // Genomes
-    private ArrayList<Genome> population; // entire population of genomes
+    private Givens givens;
+
+    // GA parameters, adapted between epochs by the control policy
+    private final int POP_SIZE;
+    private final OperatorControls controls;
+    private ControlPolicy policy;
+    private Crossover crossover = Crossover.UNIT;
+    private LocalSearch localSearch = LocalSearch.OFF; // applied to every child
+    private int generation; // epochs run so far
+
+    // work within an epoch is split into this many chunks, each with its
+    // own random stream, so results do not depend on the thread count
+    private static final int NUM_CHUNKS = 64;
+
+    // Genomes. Each epoch writes the next population into the genomes of
+    // nextPopulation & then swaps the two, so genome storage is reused
+    private Genome[] population;     // entire population of genomes
+    private Genome[] nextPopulation; // storage for the next generation
+    private Genome[] children;       // storage for each epoch's children
+    private Genome[] tempPop;        // population + children
+
+    // the population's distinct boards. Children already in it are not
+    // rescored, & survivors that repeat a board are mutated until unique
+    private static final int MAX_UNIQUE_SWAPS = 8;
+    private GenomeSet boards;
+    private int duplicates;   // survivors found repeating a board last epoch
+    private int uniqueBoards; // distinct boards in the population
+
+    // cells the last epoch's crossovers wrote beyond bulk parent copies
+    private final AtomicLong cellsCopied = new AtomicLong();
 
     // Genome population stats
     private double bestFitness;
     private Genome fittestGenome;
     private boolean solutionFound;
+    private int[] valueCounts; // summarize()'s table, reused between calls
 
-    private static Random r;
+    // Parallelism
+    private long seed;          // run seed, enough to replay the run
+    private SplittableRandom r; // run stream, split into one stream per chunk
+    private long numSplits;     // streams split off r so far
+    private ForkJoinPool pool;  // null when running single-threaded
 
 
     /********************************************************************************
-     * Constructor. Initializes stats & params and creates the starting
-     * population of genomes.
+     * Constructor. Runs single-threaded with a random seed; getSeed() returns
+     * it so the run can be replayed.
      *******************************************************************************/
     public GeneticAlgorithm(int N){
+        this(N, 10000, 1, new SplittableRandom().nextLong());
+    }
+
+
+    /********************************************************************************
+     * Constructor. Default population size of 10000.
+     *******************************************************************************/
+    public GeneticAlgorithm(int N, int numThreads, long seed){
+        this(N, 10000, numThreads, seed);
+    }
+
+
+    /********************************************************************************
+     * Constructor. Evolves a blank board.
+     *******************************************************************************/
+    public GeneticAlgorithm(int N, int popSize, int numThreads, long seed){
+        this(N, null, popSize, numThreads, seed);
+    }
+
+
+    /********************************************************************************
+     * Constructor. Initializes stats & params and creates the starting
+     * population of genomes for a puzzle, keeping its givens fixed. The puzzle
+     * is row-major with 0 for empty cells; null evolves a blank board.
+     * Epochs are spread over numThreads worker threads; for a given seed the
+     * results are the same for any thread count. Tournaments of 5, a
+     * starting mutation rate of 80% & the default control policy.
+     *******************************************************************************/
+    public GeneticAlgorithm(int N, int[] puzzle, int popSize, int numThreads, long seed){
+        this(N, puzzle, popSize, 5, 80, numThreads, seed);
+    }
 
-        this.N = N;
 
-        this.population = new ArrayList<>();
+    /********************************************************************************
+     * Constructor. As above, with the starting tournament size & mutation rate
+     * (in percent) set explicitly. Each mutated survivor starts with one swap &
+     * the fittest 1% (at least 1) are kept unchanged.
+     *******************************************************************************/
+    public GeneticAlgorithm(int N, int[] puzzle, int popSize, int tournamentSize, int mutationRate,
+                            int numThreads, long seed){
+
+        if (popSize < 2) throw new IllegalArgumentException("popSize must be at least 2");
+        if (tournamentSize < 2 || tournamentSize > popSize) throw new IllegalArgumentException(
+                "tournamentSize must be between 2 and popSize");
+        if (mutationRate < 0 || mutationRate > 100) throw new IllegalArgumentException(
+                "mutationRate must be between 0 and 100");
+        if (numThreads < 1) throw new IllegalArgumentException("numThreads must be at least 1");
+
+        this.N = N;
+        this.POP_SIZE = popSize;
+        this.controls = new OperatorControls(N, popSize, mutationRate, 1, tournamentSize, popSize / 100);
+        this.policy = defaultPolicy();
 
         this.bestFitness = 0;
         this.fittestGenome = null;
         this.solutionFound = false;
 
-        this.r = new Random();
+        this.seed = seed;
+        this.r = new SplittableRandom(seed);
+        if (numThreads > 1) this.pool = new ForkJoinPool(numThreads);
 
         // create random initial population
-        Genome g;
+        this.givens = puzzle == null ? null : new Givens(N, puzzle);
+        Genome[] initialPop = new Genome[POP_SIZE];
 
-        for (int i = 0; i < POP_SIZE; i++) {
-            g = new Genome(N);
-            population.add(g);
+        runChunks(POP_SIZE, (rng, from, to) -> {
+            for (int i = from; i < to; i++) {
+                initialPop[i] = new Genome(N, givens, rng);
+            }
+        });
+
+        this.population = initialPop;
+        allocateStorage();
+
+    }
+
+
+    /********************************************************************************
+     * Constructor. Restores a population saved by writeState. The run stream is
+     * replayed from the seed, so the restored run continues exactly as the
+     * saved one would have.
+     *******************************************************************************/
+    private GeneticAlgorithm(int N, Givens givens, Genome[] population, OperatorControls controls,
+                             ControlPolicy policy, int generation, long seed, long numSplits, int numThreads) {
+
+        this.N = N;
+        this.givens = givens;
+        this.POP_SIZE = population.length;
+        this.controls = controls;
+        this.policy = policy;
+        this.generation = generation;
+
+        this.seed = seed;
+        this.r = new SplittableRandom(seed);
+        for (long i = 0; i < numSplits; i++) {
+            r.split();
+        }
+        this.numSplits = numSplits;
+        if (numThreads > 1) this.pool = new ForkJoinPool(numThreads);
+
+        this.population = population;
+        allocateStorage();
+
+    }
+
+
+    /********************************************************************************
+     * Allocates the reusable storage for a new population & finds its fittest
+     * genome.
+     *******************************************************************************/
+    private void allocateStorage() {
+
+        int numPairs = (POP_SIZE / 2 + 1) / 2;
+        this.children = new Genome[numPairs * 2];
+        this.nextPopulation = new Genome[POP_SIZE];
+        this.tempPop = new Genome[POP_SIZE + children.length];
+        this.boards = new GenomeSet(POP_SIZE);
+
+        try {
+            for (int i = 0; i < children.length; i++) {
+                children[i] = (Genome) population[i % POP_SIZE].clone();
+            }
+            for (int i = 0; i < POP_SIZE; i++) {
+                nextPopulation[i] = (Genome) population[i].clone();
+            }
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
         }
 
-        Collections.sort(population);
+        indexBoards();
+        findFittest();
+        if (bestFitness == 1) solutionFound = true;
 
     }
 
@@ -63,132 +211,510 @@ public class GeneticAlgorithm {
     public void epoch() throws Exception {
 
         double previousBest = this.bestFitness;
+        long epochStart = SolverMetrics.startTiming();
+        long phaseStart = epochStart;
 
             //reset the stat reporting variables
             this.bestFitness = 0;
 
-            // Recombination
-            ArrayList<Genome> tempPop = new ArrayList<>(population); //start with existing pop
-            int numChildrenToCreate = POP_SIZE / 2;
+            // this epoch's operator settings
+            int tournamentSize = controls.getTournamentSize();
+            int mutationRate = controls.getMutationRate();
+            int mutationStrength = controls.getMutationStrength();
+            int eliteCount = controls.getEliteCount();
+
+            // Recombination, writing the children into reused storage, & local
+            // search on each child
+            Genome[] parentPop = population;
+            int numPairs = children.length / 2;
+            Crossover operator = crossover;
+            LocalSearch search = localSearch;
+            cellsCopied.set(0);
+
+            runChunks(numPairs, (rng, from, to) -> {
+                Genome[] parents = new Genome[2];
+                int[] drawn = new int[tournamentSize];
+                int[] unitCells = new int[N * N];
+                boolean[] fromParent2 = new boolean[N * N];
+                long copied = 0;
+                for (int i = from; i < to; i++) {
+                    tournament(parentPop, parentPop.length, rng, drawn, parents);
+                    copied += operator.breed(N, parents[0], parents[1], children[2 * i], children[2 * i + 1],
+                            rng, boards, fromParent2);
+                    search.improve(children[2 * i], N, rng, unitCells);
+                    search.improve(children[2 * i + 1], N, rng, unitCells);
+                }
+                cellsCopied.addAndGet(copied);
+            });
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.RECOMBINATION, phaseStart);
+
+            System.arraycopy(population, 0, tempPop, 0, POP_SIZE); //start with existing pop
+            System.arraycopy(children, 0, tempPop, POP_SIZE, children.length);
+
+            // chose all but the elites via tournament selection, copying
+            // each winner into its own slot so it can be mutated independently
+            int numSurvivors = POP_SIZE - eliteCount;
+            Genome[] survivors = nextPopulation;
+
+            runChunks((numSurvivors + 1) / 2, (rng, from, to) -> {
+                Genome[] winners = new Genome[2];
+                int[] drawn = new int[tournamentSize];
+                for (int i = from; i < to; i++) {
+                    tournament(tempPop, tempPop.length, rng, drawn, winners);
+                    survivors[2 * i].copyFrom(winners[0]);
+                    if (2 * i + 1 < numSurvivors) survivors[2 * i + 1].copyFrom(winners[1]);
+                }
+            });
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.SELECTION, phaseStart);
 
-            while (tempPop.size() < (double) population.size() + numChildrenToCreate) {
-                ArrayList<Genome> parents = tournament(population);
-                ArrayList<Genome> children = recombination(parents);
-                tempPop.addAll(children);
+            // copy the elites into the last slots
+            selectFittest(tempPop, eliteCount);
+            for (int i = 0; i < eliteCount; i++) {
+                survivors[numSurvivors + i].copyFrom(tempPop[i]);
             }
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.ELITES, phaseStart);
+
+            // Randomly select mutationRate percent of the survivors to mutate
+            runChunks(numSurvivors, (rng, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    if (rng.nextInt(100) < mutationRate) {
+                        for (int swap = 0; swap < mutationStrength; swap++) {
+                            survivors[i].mutate(N, rng);
+                        }
+                    }
+                }
+            });
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.MUTATION, phaseStart);
 
-            // make sure to keep top 1% (or 1 if 1% is less than 1)
-            int onePercent = (int) (POP_SIZE * 0.01);
-            if (onePercent < 1) onePercent = 1;
+            // the old population's genomes become next epoch's storage
+            this.nextPopulation = population;
+            this.population = survivors;
 
-            ArrayList<Genome> theOnePercent = null;
-            try {
-                theOnePercent = new ArrayList<>(grabNBest(onePercent, 1, tempPop));
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+            replaceDuplicates(numSurvivors);
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.DEDUPLICATION, phaseStart);
 
-            // create deep clone of the top one percent of the population
-            ArrayList<Genome> theOnePercentClones = new ArrayList<>();
+            // update best fitness values
+            findFittest();
 
-            Iterator<Genome> iterator = theOnePercent.iterator();
-            while(iterator.hasNext()){
-                theOnePercentClones.add((Genome) iterator.next().clone());
+            // catch errors
+            if (previousBest > bestFitness) throw new Exception ("previous best: " + previousBest + " new best: "
+                    + bestFitness);
+
+            if (population.length != POP_SIZE) throw new Exception("Population size: " + population.length
+                    + " Population should equal " + POP_SIZE);
+
+            if (bestFitness > 1.0) throw new Exception("Best fitness cannot be greater than 1.0");
+
+            // check if a solution has been found
+            if (bestFitness == 1) {
+                solutionFound = true;
             }
+            phaseStart = SolverMetrics.lap(SolverMetrics.Phase.FITTEST, phaseStart);
+
+            // let the policy adjust the operators for the next epoch
+            generation++;
+            if (!solutionFound) policy.adapt(this);
+            SolverMetrics.lap(SolverMetrics.Phase.POLICY, phaseStart);
+            SolverMetrics.endEpoch(epochStart);
+
+    }
+
+
+    /********************************************************************************
+     * Mutates each survivor that repeats a board already in the population until
+     * it is unique, giving up after MAX_UNIQUE_SWAPS swaps, & indexes the
+     * population's boards. The elites, in the last slots, go in first so they
+     * are never changed. Runs on one thread since each genome is checked against
+     * all of those before it.
+     *******************************************************************************/
+    private void replaceDuplicates(int numSurvivors) {
+
+        SplittableRandom rng = r.split();
+        numSplits++;
 
-            // chose the rest of the survivors via tournament selection
-            ArrayList<Genome> survivors = new ArrayList<>();
+        boards.clear();
+        duplicates = 0;
 
-            while (POP_SIZE - onePercent > survivors.size()) {
-                ArrayList<Genome> winners = tournament(tempPop);
-                survivors.addAll(winners);
+        for (int i = numSurvivors; i < POP_SIZE; i++) {
+            boards.add(population[i]);
+        }
+
+        for (int i = 0; i < numSurvivors; i++) {
+
+            Genome g = population[i];
+            if (boards.add(g)) continue;
+
+            duplicates++;
+            for (int swap = 0; swap < MAX_UNIQUE_SWAPS; swap++) {
+                g.mutate(N, rng);
+                if (boards.add(g)) break;
             }
+        }
 
-            population = new ArrayList<>(survivors);
+        uniqueBoards = boards.size();
 
-            // Randomly select some survivors to mutate
-            for (Genome g : population) {
-                if (r.nextInt(101) <= mutationRate); {
-                    g.mutate(N);
-                }
+    }
+
+
+    /********************************************************************************
+     * Starts a new run on a puzzle of the same order (null for a blank board)
+     * from a new seed, refilling the population & child storage in place &
+     * keeping the worker threads. The run matches that of a new
+     * GeneticAlgorithm with the same settings; operator settings, policy,
+     * crossover & local search are kept as they are for the caller to reset.
+     *******************************************************************************/
+    public void reset(int[] puzzle, long seed) {
+
+        this.givens = puzzle == null ? null : new Givens(N, puzzle);
+        this.generation = 0;
+        this.duplicates = 0;
+        this.solutionFound = false;
+
+        this.seed = seed;
+        this.r = new SplittableRandom(seed);
+        this.numSplits = 0;
+
+        Genome[] pop = population;
+        Givens puzzleGivens = givens;
+        runChunks(POP_SIZE, (rng, from, to) -> {
+            for (int i = from; i < to; i++) {
+                pop[i].randomize(puzzleGivens, rng);
             }
+        });
 
-            // add the top performers back in
-            population.addAll(theOnePercentClones);
+        for (int i = 0; i < children.length; i++) {
+            children[i].copyFrom(population[i % POP_SIZE]);
+        }
+        for (int i = 0; i < POP_SIZE; i++) {
+            nextPopulation[i].copyFrom(population[i]);
+        }
 
-            // sort & update best fitness values
-            Collections.sort(population);
-            this.fittestGenome = population.get(0);
-            this.bestFitness = this.fittestGenome.getFitnessScore();
+        indexBoards();
+        findFittest();
+        if (bestFitness == 1) solutionFound = true;
 
-            // catch errors
-            if (previousBest > bestFitness) throw new Exception ("previous best: " + previousBest + " new best: "
-                    + bestFitness);
+    }
 
-            if (population.size() != POP_SIZE) throw new Exception("Population size: " + population.size()
-                    + " Population should equal " + POP_SIZE);
 
-            if (bestFitness > 1.0) throw new Exception("Best fitness cannot be greater than 1.0");
+    /********************************************************************************
+     * Indexes the population's boards as they are, duplicates included.
+     *******************************************************************************/
+    private void indexBoards() {
 
-            // check if a solution has been found
-            if (population.get(0).getFitnessScore() == 1) {
-                solutionFound = true;
+        boards.clear();
+        for (Genome g : population) {
+            boards.add(g);
+        }
+
+        uniqueBoards = boards.size();
+
+    }
+
+
+    /********************************************************************************
+     * Keeps the elites & replaces the rest of the population with new random
+     * genomes. Called by control policies when the population has converged.
+     *******************************************************************************/
+    public void restart() {
+
+        int eliteCount = controls.getEliteCount();
+        selectFittest(population, eliteCount);
+
+        Genome[] pop = population;
+        runChunks(POP_SIZE - eliteCount, (rng, from, to) -> {
+            for (int i = from; i < to; i++) {
+                pop[eliteCount + i].randomize(rng);
             }
+        });
 
+        indexBoards();
+        findFittest();
+
+    }
+
+
+    /********************************************************************************
+     * The policy a new GeneticAlgorithm starts with.
+     *******************************************************************************/
+    public static ControlPolicy defaultPolicy() {
+        return new AdaptivePolicy();
     }
 
 
     /********************************************************************
-     * Tournament selection. Returns the 2 genomes with the highest
-     * fitness scores.
+     * Tournament selection. Draws drawn.length distinct genomes from
+     * the first size entries of tempPop & puts the 2 with the highest
+     * fitness scores in winners. drawn is scratch space with one int per
+     * entrant. Package-private for the benchmarks.
      *******************************************************************/
-    private ArrayList<Genome> tournament(ArrayList<Genome> tempPop) {
+    void tournament(Genome[] tempPop, int size, SplittableRandom r, int[] drawn, Genome[] winners) {
 
-        ArrayList<Genome> tournamentGroup = new ArrayList<>();
-        r = new Random();
+        Genome first = null;
+        Genome second = null;
 
-        while (tournamentGroup.size() < TOURNAMENT_SIZE) {
-            int i = r.nextInt(tempPop.size());
-            if (!tournamentGroup.contains(tempPop.get(i))) {
-                tournamentGroup.add(tempPop.get(i));
+        // draw distinct entrants, keeping the two fittest seen so far
+        for (int entrants = 0; entrants < drawn.length; ) {
+
+            int i = r.nextInt(size);
+
+            boolean duplicate = false;
+            for (int j = 0; j < entrants; j++) {
+                if (drawn[j] == i) duplicate = true;
+            }
+            if (duplicate) continue;
+
+            drawn[entrants++] = i;
+            Genome g = tempPop[i];
+
+            if (first == null || g.compareTo(first) < 0) {
+                second = first;
+                first = g;
+            } else if (second == null || g.compareTo(second) < 0) {
+                second = g;
             }
         }
 
-        Collections.sort(tournamentGroup);
+        winners[0] = first;
+        winners[1] = second;
 
-        ArrayList<Genome> winners = new ArrayList<>();
-        winners.add(tournamentGroup.get(0));
-        winners.add(tournamentGroup.get(1));
+    }
 
-        return winners;
 
+    /********************************************************************************
+     * A slice [from, to) of an epoch's work, run with its own random stream.
+     *******************************************************************************/
+    private interface ChunkTask {
+        void run(SplittableRandom rng, int from, int to);
     }
 
 
-    /********************************************************************
-     * Recombination helper method for creating children genomes.
-     * Swaps units of 2 parents at a crossover point to create two
-     * new children.
-     *******************************************************************/
-    private ArrayList<Genome> recombination(ArrayList<Genome> parents) {
+    /********************************************************************************
+     * Splits count work items into NUM_CHUNKS chunks & runs them, on the worker
+     * pool if there is one. Each chunk's random stream is split off the run stream
+     * in chunk order, so the outcome is the same for any number of threads.
+     *******************************************************************************/
+    private void runChunks(int count, ChunkTask task) {
 
-        Genome parent1 = parents.get(0);
-        Genome parent2 = parents.get(1);
+        SplittableRandom[] streams = new SplittableRandom[NUM_CHUNKS];
+        for (int c = 0; c < NUM_CHUNKS; c++) {
+            streams[c] = r.split();
+        }
+        numSplits += NUM_CHUNKS;
 
-        // choose random crossover col and row
-        r = new Random();
-        int crossoverUnitCol = r.nextInt(N);
-        int crossoverUnitRow = r.nextInt(N);
+        if (pool == null) {
+            for (int c = 0; c < NUM_CHUNKS; c++) {
+                task.run(streams[c], c * count / NUM_CHUNKS, (c + 1) * count / NUM_CHUNKS);
+            }
+            return;
+        }
 
-        // create children
-        Genome child1 = new Genome(N, parent1, parent2, crossoverUnitCol, crossoverUnitRow);
-        Genome child2 = new Genome(N, parent2, parent1, crossoverUnitCol, crossoverUnitRow);
+        List<Callable<Void>> chunks = new ArrayList<>();
+        for (int c = 0; c < NUM_CHUNKS; c++) {
+            SplittableRandom rng = streams[c];
+            int from = c * count / NUM_CHUNKS;
+            int to = (c + 1) * count / NUM_CHUNKS;
+            chunks.add(() -> {
+                task.run(rng, from, to);
+                return null;
+            });
+        }
 
-        ArrayList<Genome> children = new ArrayList<>();
-        children.add(child1);
-        children.add(child2);
+        try {
+            for (Future<Void> f : pool.invokeAll(chunks)) {
+                f.get();
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
 
-        return children;
+    }
+
+
+    /********************************************************************************
+     * Writes everything needed to continue the run: parameters, operator
+     * settings, policy state, crossover & local search, the run stream's position, the givens & every
+     * genome's cells packed into as few bits per cell as the board needs (4 bits
+     * for a 9x9 board).
+     *******************************************************************************/
+    public void writeState(DataOutput out) throws IOException {
+        snapshotState().write(out);
+    }
+
+
+    /********************************************************************************
+     * Copies what writeState saves, between epochs, so it can be written later on
+     * another thread while the run goes on. The cells are copied as they are;
+     * packing them is left to State.write.
+     *******************************************************************************/
+    public State snapshotState() throws IOException {
+
+        int nSq = N * N;
+        int numCells = nSq * nSq;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(N);
+        out.writeInt(POP_SIZE);
+        out.writeInt(generation);
+        controls.write(out);
+        out.writeUTF(policy.getClass().getName());
+        policy.writeState(out);
+        out.writeByte(crossover.ordinal());
+        out.writeUTF(localSearch.toString());
+        out.writeLong(seed);
+        out.writeLong(numSplits);
+
+        out.writeBoolean(givens != null);
+        if (givens != null) out.write(givens.getValues());
+        out.flush();
+
+        byte[] cells = new byte[POP_SIZE * numCells];
+        for (int i = 0; i < POP_SIZE; i++) {
+            System.arraycopy(population[i].getCells(), 0, cells, i * numCells, numCells);
+        }
+
+        return new State(bytes.toByteArray(), cells, cellBits(nSq));
+    }
+
+
+    /********************************************************************************
+     * A copy of a run's state taken by snapshotState.
+     *******************************************************************************/
+    public static final class State {
+
+        private final byte[] header;
+        private final byte[] cells;
+        private final int bits;
+
+        private State(byte[] header, byte[] cells, int bits) {
+            this.header = header;
+            this.cells = cells;
+            this.bits = bits;
+        }
+
+        /****************************************************************************
+         * Writes the state in writeState's format.
+         ***************************************************************************/
+        public void write(DataOutput out) throws IOException {
+
+            out.write(header);
+
+            // values 1...N^2 stored as 0...N^2 - 1, bits packed low to high
+            long buffer = 0;
+            int buffered = 0;
+
+            for (byte cell : cells) {
+                buffer |= (long) ((cell & 0xFF) - 1) << buffered;
+                buffered += bits;
+                while (buffered >= 8) {
+                    out.writeByte((int) buffer);
+                    buffer >>>= 8;
+                    buffered -= 8;
+                }
+            }
+
+            if (buffered > 0) out.writeByte((int) buffer);
+
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Restores a run saved by writeState with the default policy, on numThreads
+     * worker threads.
+     *******************************************************************************/
+    public static GeneticAlgorithm readState(DataInput in, int numThreads) throws IOException {
+        return readState(in, numThreads, defaultPolicy());
+    }
+
+
+    /********************************************************************************
+     * Restores a run saved by writeState, on numThreads worker threads. policy
+     * must be a fresh instance of the policy the run was saved with; its state
+     * is restored too.
+     *******************************************************************************/
+    public static GeneticAlgorithm readState(DataInput in, int numThreads, ControlPolicy policy) throws IOException {
+
+        int N = in.readInt();
+        int popSize = in.readInt();
+        int generation = in.readInt();
+
+        int nSq = N * N;
+        int numCells = nSq * nSq;
+
+        if (N < 2 || nSq > 255 || popSize < 2 || generation < 0) throw new IOException("corrupt population state");
+
+        OperatorControls controls = new OperatorControls(N, popSize, 0, 1, 2, 1);
+        controls.read(in);
+
+        String policyName = in.readUTF();
+        if (!policyName.equals(policy.getClass().getName())) throw new IOException("state was saved with "
+                + policyName + ", not " + policy.getClass().getName());
+        policy.readState(in);
+
+        Crossover crossover;
+        LocalSearch localSearch;
+        try {
+            int ordinal = in.readUnsignedByte();
+            if (ordinal >= Crossover.values().length) throw new IllegalArgumentException("unknown crossover");
+            crossover = Crossover.values()[ordinal];
+            localSearch = LocalSearch.forMode(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt population state", e);
+        }
+
+        long seed = in.readLong();
+        long numSplits = in.readLong();
+
+        Givens givens = null;
+        if (in.readBoolean()) {
+            byte[] values = new byte[numCells];
+            in.readFully(values);
+            int[] puzzle = new int[numCells];
+            for (int i = 0; i < numCells; i++) {
+                puzzle[i] = values[i] & 0xFF;
+            }
+            givens = new Givens(N, puzzle);
+        }
+
+        int bits = cellBits(nSq);
+        int mask = (1 << bits) - 1;
+        long buffer = 0;
+        int buffered = 0;
+
+        Genome[] population = new Genome[popSize];
+        byte[] cells = new byte[numCells];
+
+        for (int g = 0; g < popSize; g++) {
+            for (int i = 0; i < numCells; i++) {
+                while (buffered < bits) {
+                    buffer |= (long) in.readUnsignedByte() << buffered;
+                    buffered += 8;
+                }
+                int value = (int) (buffer & mask) + 1;
+                if (value > nSq) throw new IOException("corrupt population state");
+                cells[i] = (byte) value;
+                buffer >>>= bits;
+                buffered -= bits;
+            }
+            population[g] = new Genome(N, givens, cells);
+        }
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(N, givens, population, controls, policy, generation, seed,
+                numSplits, numThreads);
+        genAlg.setCrossover(crossover);
+        genAlg.setLocalSearch(localSearch);
+        return genAlg;
+    }
+
+
+    /********************************************************************************
+     * Bits needed to store a cell value of 1...nSq.
+     *******************************************************************************/
+    private static int cellBits(int nSq) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(nSq - 1));
     }
 
 
@@ -208,7 +734,10 @@ public class GeneticAlgorithm {
         //add the required amount of copies of the n most fittest to the supplied vector
         ArrayList<Genome> newPop = new ArrayList<>();
 
-        Collections.sort(population);
+        // move the n most fit to the front without sorting the whole population
+        Genome[] genomes = population.toArray(new Genome[0]);
+        selectFittest(genomes, nBest);
+        Arrays.sort(genomes, 0, nBest);
 
         int index = 0;
 
@@ -216,7 +745,7 @@ public class GeneticAlgorithm {
 
             int copiesCount = 0;
             while(copiesCount < numCopies && newPop.size() < nBest) {
-                newPop.add(population.get(index));
+                newPop.add(genomes[index]);
                 copiesCount++;
             }
 
@@ -228,13 +757,154 @@ public class GeneticAlgorithm {
     }
 
 
+    /********************************************************************************
+     * Returns deep clones of the k fittest genomes, to be sent to another
+     * population.
+     *******************************************************************************/
+    public ArrayList<Genome> emigrants(int k) throws Exception {
+
+        ArrayList<Genome> emigrants = new ArrayList<>();
+
+        for (Genome g : grabNBest(k, 1, getPopulation())) {
+            emigrants.add((Genome) g.clone());
+        }
+
+        return emigrants;
+    }
+
+
+    /********************************************************************************
+     * Replaces the least fit genomes with genomes from another population &
+     * updates the best fitness values.
+     *******************************************************************************/
+    public void immigrate(List<Genome> immigrants) {
+
+        // move the least fit to the back & overwrite them
+        int first = population.length - immigrants.size();
+        selectFittest(population, first);
+
+        for (int i = 0; i < immigrants.size(); i++) {
+            population[first + i].copyFrom(immigrants.get(i));
+        }
+
+        indexBoards();
+        findFittest();
+
+        if (bestFitness == 1) solutionFound = true;
+    }
+
+
+    /********************************************************************************
+     * Summarizes the current population. Scans every genome, so reporters call it
+     * only for the generations they emit, from the thread running the epochs.
+     *******************************************************************************/
+    public GenerationRecord summarize(int run, int generation) {
+
+        int nSq = N * N;
+        int numCells = nSq * nSq;
+
+        double sum = 0;
+        double worst = Double.MAX_VALUE;
+
+        // how many genomes hold each value in each cell, offset = cell * (N^2 + 1) + value
+        if (valueCounts == null || valueCounts.length != numCells * (nSq + 1)) {
+            valueCounts = new int[numCells * (nSq + 1)];
+        } else {
+            Arrays.fill(valueCounts, 0);
+        }
+
+        for (Genome g : population) {
+            double fitness = g.getFitnessScore();
+            sum += fitness;
+            if (fitness < worst) worst = fitness;
+
+            byte[] cells = g.getCells();
+            for (int i = 0; i < numCells; i++) {
+                valueCounts[i * (nSq + 1) + (cells[i] & 0xFF)]++;
+            }
+        }
+
+        // fraction of genomes away from each cell's most common value
+        double disagree = 0;
+        for (int i = 0; i < numCells; i++) {
+            int mostCommon = 0;
+            for (int v = 1; v <= nSq; v++) {
+                mostCommon = Math.max(mostCommon, valueCounts[i * (nSq + 1) + v]);
+            }
+            disagree += POP_SIZE - mostCommon;
+        }
+
+        return new GenerationRecord(run, generation, bestFitness, sum / POP_SIZE, worst,
+                disagree / ((double) POP_SIZE * numCells), (double) uniqueBoards / POP_SIZE,
+                getCellsCopiedPerChild(), controls.getMutationRate());
+    }
+
+
+    /********************************************************************************
+     * Scans the population once & caches its fittest genome & best fitness.
+     *******************************************************************************/
+    private void findFittest() {
+
+        Genome fittest = population[0];
+        for (Genome g : population) {
+            if (g.compareTo(fittest) < 0) fittest = g;
+        }
+
+        this.fittestGenome = fittest;
+        this.bestFitness = fittest.getFitnessScore();
+    }
+
+
+    /********************************************************************************
+     * Quickselect. Rearranges genomes so the k fittest are in genomes[0...k-1],
+     * in no particular order, in O(n) expected time.
+     *******************************************************************************/
+    private static void selectFittest(Genome[] genomes, int k) {
+
+        int lo = 0;
+        int hi = genomes.length - 1;
+        int target = k - 1;
+
+        while (lo < hi && target >= 0) {
+
+            Genome pivot = genomes[(lo + hi) >>> 1];
+            int i = lo;
+            int j = hi;
+
+            // partition: fitter than pivot to the left, less fit to the right
+            while (i <= j) {
+                while (genomes[i].compareTo(pivot) < 0) i++;
+                while (genomes[j].compareTo(pivot) > 0) j--;
+                if (i <= j) {
+                    Genome tmp = genomes[i];
+                    genomes[i] = genomes[j];
+                    genomes[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+
+            if (target <= j) hi = j;
+            else if (target >= i) lo = i;
+            else return;
+        }
+
+    }
+
+
     /********************************************************************************
      * Increments mutation rate by 1 if it's less than 100%.
      *******************************************************************************/
     public void incrementMutationRate() {
-        if (mutationRate < 100) {
-            this.mutationRate++;
-        }
+        controls.setMutationRate(controls.getMutationRate() + 1);
+    }
+
+
+    /********************************************************************************
+     * Stops the worker threads, if any.
+     *******************************************************************************/
+    public void shutdown() {
+        if (pool != null) pool.shutdown();
     }
 
 
@@ -242,9 +912,10 @@ public class GeneticAlgorithm {
      * Getters & Setters
      *******************************************************************************/
     public ArrayList<Genome> getPopulation() {
-        return population;
+        return new ArrayList<>(Arrays.asList(population));
     }
 
+    // the genome's storage is reused, so it is only valid until the next epoch
     public Genome getFittestGenome() {
         return fittestGenome;
     }
@@ -254,7 +925,70 @@ public class GeneticAlgorithm {
     }
 
     public int getMutationRate() {
-        return mutationRate;
+        return controls.getMutationRate();
+    }
+
+    public int getTournamentSize() {
+        return controls.getTournamentSize();
+    }
+
+    public OperatorControls getControls() {
+        return controls;
+    }
+
+    public ControlPolicy getPolicy() {
+        return policy;
+    }
+
+    // a policy belongs to one algorithm, so pass a fresh instance
+    public void setPolicy(ControlPolicy policy) {
+        this.policy = policy;
+    }
+
+    // survivors that repeated a board in the last epoch, before being mutated
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    public int getUniqueBoards() {
+        return uniqueBoards;
+    }
+
+    public Crossover getCrossover() {
+        return crossover;
+    }
+
+    public void setCrossover(Crossover crossover) {
+        this.crossover = crossover;
+    }
+
+    // average over the last epoch's children
+    public double getCellsCopiedPerChild() {
+        return (double) cellsCopied.get() / children.length;
+    }
+
+    public LocalSearch getLocalSearch() {
+        return localSearch;
+    }
+
+    public void setLocalSearch(LocalSearch localSearch) {
+        this.localSearch = localSearch;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getN() {
+        return N;
+    }
+
+    public int getPopSize() {
+        return POP_SIZE;
+    }
+
+    public long getSeed() {
+        return seed;
     }
 
 
@@ -0,0 +1,138 @@
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class GeneticAlgorithmTest {
+
+    @Test
+    public void testSameSeedSameTrace() throws Exception {
+
+        // the same seed should replay the same trace for any thread count
+        double[] expected = trace(1, 42);
+        assertArrayEquals(expected, trace(1, 42), 0.0);
+        assertArrayEquals(expected, trace(3, 42), 0.0);
+
+    }
+
+    @Test
+    public void testRestoredStateContinuesRun() throws Exception {
+
+        GeneticAlgorithm original = new GeneticAlgorithm(3, 500, 1, 42);
+        for (int generation = 0; generation < 10; generation++) {
+            original.epoch();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeState(new DataOutputStream(bytes));
+
+        // 500 genomes of 81 cells at 4 bits each
+        assertEquals(500 * 81 / 2, bytes.size(), 100);
+
+        GeneticAlgorithm restored = GeneticAlgorithm.readState(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), 1);
+
+        // the restored run should evolve exactly as the original
+        for (int generation = 0; generation < 10; generation++) {
+            original.epoch();
+            restored.epoch();
+            assertEquals(original.getFittestGenome().getFitnessScore(),
+                    restored.getFittestGenome().getFitnessScore(), 0.0);
+            assertArrayEquals(original.getFittestGenome().getCells(), restored.getFittestGenome().getCells());
+        }
+
+    }
+
+    @Test
+    public void testResetMatchesNewRun() throws Exception {
+
+        int[] puzzle = new int[81];
+        puzzle[0] = 5;
+        puzzle[40] = 7;
+
+        GeneticAlgorithm reused = new GeneticAlgorithm(3, null, 500, 1, 42);
+        for (int generation = 0; generation < 5; generation++) {
+            reused.epoch();
+        }
+        reused.reset(puzzle, 7);
+        reused.setPolicy(GeneticAlgorithm.defaultPolicy());
+        reused.getControls().setMutationRate(80);
+        reused.getControls().setMutationStrength(1);
+        reused.getControls().setTournamentSize(5);
+        reused.getControls().setEliteCount(5);
+
+        GeneticAlgorithm fresh = new GeneticAlgorithm(3, puzzle, 500, 1, 7);
+
+        // a reset run should evolve exactly as a new one from the same seed
+        for (int generation = 0; generation < 10; generation++) {
+            reused.epoch();
+            fresh.epoch();
+            assertArrayEquals(fresh.getFittestGenome().getCells(), reused.getFittestGenome().getCells());
+        }
+        assertEquals(5, reused.getFittestGenome().getCell(0, 0));
+
+    }
+
+    @Test
+    public void testMetricsCountOnlyWhenEnabled() throws Exception {
+
+        SolverMetrics metrics = SolverMetrics.get();
+        metrics.reset();
+        metrics.setEnabled(true);
+
+        GeneticAlgorithm genAlg;
+        try {
+            genAlg = new GeneticAlgorithm(3, 100, 1, 42);
+            for (int generation = 0; generation < 3; generation++) {
+                genAlg.epoch();
+            }
+        } finally {
+            metrics.setEnabled(false);
+        }
+
+        SolverMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getEpochs());
+        assertTrue(snapshot.getGenomesAllocated() >= 100);
+        assertTrue(snapshot.getFullEvaluations() >= 100);
+        assertTrue(snapshot.getPhaseNanos(SolverMetrics.Phase.RECOMBINATION) > 0);
+
+        // disabled, nothing more is counted
+        genAlg.epoch();
+        assertEquals(3, metrics.getEpochs());
+        assertEquals(snapshot.getFullEvaluations(), metrics.getFullEvaluations());
+
+    }
+
+    @Test
+    public void testSummaryReportsCellsCopied() throws Exception {
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(3, 100, 1, 42);
+        genAlg.epoch();
+
+        // a unit crossover writes some but never all of a child's cells
+        double cellsCopied = genAlg.summarize(0, 1).getCellsCopied();
+        assertTrue(cellsCopied > 0 && cellsCopied < 81);
+        assertEquals(genAlg.getCellsCopiedPerChild(), cellsCopied, 0.0);
+
+    }
+
+    private static double[] trace(int numThreads, long seed) throws Exception {
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(3, 500, numThreads, seed);
+        double[] trace = new double[30];
+
+        for (int generation = 0; generation < trace.length; generation++) {
+            genAlg.epoch();
+            trace[generation] = genAlg.getFittestGenome().getFitnessScore();
+        }
+
+        genAlg.shutdown();
+        return trace;
+    }
+
+}
@@ -0,0 +1,94 @@
+/************************************************************************************
+ * Solver that runs the genetic algorithm until it finds a valid board or
+ * reaches its generation limit.
+ ***********************************************************************************/
+public class GeneticSolver implements Solver {
+
+    private final SolverConfig config;
+    private GeneticAlgorithm genAlg; // kept warm between puzzles
+
+
+    /********************************************************************************
+     * Constructor. Default GA settings.
+     *******************************************************************************/
+    public GeneticSolver(int maxNumberGenerations, int numThreads, long seed) {
+        this(maxNumberGenerations, numThreads, seed, LocalSearch.OFF);
+    }
+
+
+    /********************************************************************************
+     * Constructor. Default GA settings, running localSearch on every child.
+     *******************************************************************************/
+    public GeneticSolver(int maxNumberGenerations, int numThreads, long seed, LocalSearch localSearch) {
+
+        this.config = new SolverConfig();
+        config.set("generations", Integer.toString(maxNumberGenerations));
+        config.set("threads", Integer.toString(numThreads));
+        config.set("seed", Long.toString(seed));
+        config.set("local-search", localSearch.toString());
+        config.validate();
+
+    }
+
+
+    /********************************************************************************
+     * Constructor. Takes the GA settings, generation limit & seed from a
+     * validated config.
+     *******************************************************************************/
+    public GeneticSolver(SolverConfig config) {
+        this.config = config;
+    }
+
+
+    /********************************************************************************
+     * Evolves a board, keeping the puzzle's givens fixed.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle) throws Exception {
+        return solve(N, puzzle, config.getGenerations(), Long.MAX_VALUE);
+    }
+
+
+    /********************************************************************************
+     * Evolves a board for at most the lesser of maxGenerations & the configured
+     * generation limit, checking the time limit & the thread's interrupt status
+     * after every epoch. Puzzles of the same order reuse the last one's
+     * population storage & worker threads; every puzzle still starts from the
+     * configured seed, so its result does not depend on what was solved before.
+     *******************************************************************************/
+    @Override
+    public int[] solve(int N, int[] puzzle, int maxGenerations, long timeLimit) throws Exception {
+
+        long startTime = System.nanoTime();
+
+        if (genAlg != null && genAlg.getN() == N) {
+            genAlg.reset(puzzle, config.getSeed());
+            config.configure(genAlg);
+        } else {
+            close();
+            genAlg = config.createAlgorithm(N, puzzle, config.getSeed());
+        }
+
+        int limit = Math.min(maxGenerations, config.getGenerations());
+        for (int generation = 1; generation < limit && !genAlg.getSolutionFound(); generation++) {
+            if (System.nanoTime() - startTime >= timeLimit || Thread.currentThread().isInterrupted()) break;
+            genAlg.epoch();
+        }
+
+        return genAlg.getSolutionFound() ? genAlg.getFittestGenome().getBoard() : null;
+    }
+
+
+    /********************************************************************************
+     * Stops the warm algorithm's worker threads, if any. The solver can still be
+     * used afterwards.
+     *******************************************************************************/
+    @Override
+    public void close() {
+
+        if (genAlg != null) genAlg.shutdown();
+        genAlg = null;
+
+    }
+
+}
@@ -6,38 +6,104 @@ import java.util.*;
  ***********************************************************************/
 public class Genome implements Comparable, Cloneable {
 
-    private HashMap<Key, Integer> genotype;
+    // cell values stored row-major, offset = row * N^2 + col
+    private byte[] genotype;
+    private int N;
+    private int nSq;
+
+    // how many times each value appears in each row & column,
+    // offset = line * (N^2 + 1) + value; rebuilt on the first swap
+    // after they go stale
+    private byte[] rowCounts;
+    private byte[] colCounts;
+    private boolean countsValid;
+    private int error;
+
     private double fitnessScore;
     private double maxError;
-    private Random r;
+
+    // Zobrist hash of the cells, kept up to date by every change
+    private long hash;
+
+    // fixed cells of the puzzle being solved, null for a blank board
+    private Givens givens;
 
 
     /********************************************************************
-     * Construct a new random genome (sudoku board).
+     * Construct a new random genome (sudoku board) from an unseeded
+     * stream. Runs that need to be reproduced pass their own stream.
      *******************************************************************/
     public Genome(int N) {
+        this(N, new SplittableRandom());
+    }
+
+
+    /********************************************************************
+     * Construct a new random genome (sudoku board), drawing the unit
+     * permutations from the given random stream.
+     *******************************************************************/
+    public Genome(int N, SplittableRandom r) {
+        this(N, null, r);
+    }
+
+
+    /********************************************************************
+     * Construct a new random genome (sudoku board) for a puzzle. Given
+     * cells keep their values & each unit's free cells get a random
+     * permutation of the values the unit is missing.
+     *******************************************************************/
+    public Genome(int N, Givens givens, SplittableRandom r) {
 
         int nSq = N * N;
 
         int maxLineError = nSq / 2;
         this.maxError = (maxLineError * nSq) * 2;
-        this.genotype = new HashMap<>();
+        this.N = N;
+        this.nSq = nSq;
+        this.givens = givens;
+        this.genotype = new byte[nSq * nSq];
+        SolverMetrics.countGenomeAllocated();
+
+        randomize(r);
+
+    }
+
+
+    /********************************************************************
+     * Refill this genome with a new random board, keeping any givens &
+     * reusing its storage.
+     *******************************************************************/
+    public void randomize(SplittableRandom r) {
+
+        if (givens != null) {
+
+            // Copy the givens & fill in the rest of each unit
+            System.arraycopy(givens.getValues(), 0, genotype, 0, genotype.length);
+            for (int unit = 0; unit < nSq; unit++) {
+                fillFreeCells(unit, r);
+            }
 
-        // Generate N^2 random units & add to their values to the genome
-        for (int col = 0; col < nSq; col += N) {
-            for (int row = 0; row < nSq; row += N) {
+        } else {
 
-                // offsets
-                int colOffset = col;
-                int rowOffset = row;
+            // Generate N^2 random units & add to their values to the genome
+            for (int col = 0; col < nSq; col += N) {
+                for (int row = 0; row < nSq; row += N) {
 
-                //generate unit & add its values to genome
-                this.genotype.putAll(createRandomUnit(N, colOffset, rowOffset));
+                    // offsets
+                    int colOffset = col;
+                    int rowOffset = row;
+
+                    //generate unit & add its values to genome
+                    fillRandomUnit(N, colOffset, rowOffset, r);
+
+                }
 
             }
 
         }
 
+        this.hash = ZobristHash.hash(genotype, nSq);
+
         // Calculate initial fitness score
         try {
             calcFitness(N);
@@ -48,6 +114,18 @@ public class Genome implements Comparable, Cloneable {
     }
 
 
+    /********************************************************************
+     * Refill this genome with a new random board for another puzzle of
+     * the same order (null givens for a blank board).
+     *******************************************************************/
+    public void randomize(Givens givens, SplittableRandom r) {
+
+        this.givens = givens;
+        randomize(r);
+
+    }
+
+
     /********************************************************************
      * Construct a new child genome (sudoku board) from two parents.
      *******************************************************************/
@@ -57,89 +135,256 @@ public class Genome implements Comparable, Cloneable {
 
         int maxLineError = nSq / 2;
         this.maxError = (maxLineError * nSq) * 2;
+        this.N = N;
+        this.nSq = nSq;
+        this.genotype = new byte[nSq * nSq];
+        SolverMetrics.countGenomeAllocated();
 
-        this.genotype = new HashMap<>();
+        crossover(parent1, parent2, crossoverUnitCol, crossoverUnitRow);
 
-        // Get units from parents & add to their values to the genome
-        HashMap<Key, Integer> parentMap1 = parent1.getGenotype();
-        HashMap<Key, Integer> parentMap2 = parent2.getGenotype();
+    }
 
-        // Add values to child
-        this.genotype.putAll(parentMap1); // start with parent 1
 
-        for (int unitCol = crossoverUnitCol; unitCol < N; unitCol++) {
-            for (int unitRow = crossoverUnitRow; unitRow < N; unitRow++){
+    /********************************************************************
+     * Construct a genome (sudoku board) from its row-major cell values,
+     * such as a board read back from a checkpoint.
+     *******************************************************************/
+    public Genome(int N, Givens givens, byte[] cells) {
+
+        int nSq = N * N;
+
+        if (cells.length != nSq * nSq) throw new IllegalArgumentException("genome must have "
+                + (nSq * nSq) + " cells");
+
+        int maxLineError = nSq / 2;
+        this.maxError = (maxLineError * nSq) * 2;
+        this.N = N;
+        this.nSq = nSq;
+        this.givens = givens;
+        this.genotype = cells.clone();
+        this.hash = ZobristHash.hash(genotype, nSq);
+        SolverMetrics.countGenomeAllocated();
+
+        evaluate();
+
+    }
+
 
-                int colStart = unitCol * N;
-                int rowStart = unitRow * N;
+    /********************************************************************
+     * Overwrite this genome with a child of two parents, reusing its
+     * storage. Takes parent 1's board with every unit at or past the
+     * crossover point taken from parent 2.
+     *******************************************************************/
+    public void crossover(Genome parent1, Genome parent2, int crossoverUnitCol, int crossoverUnitRow) {
+        crossover(parent1, parent2, crossoverUnitCol, crossoverUnitRow, null);
+    }
 
-                for (int col = colStart; col < colStart + nSq; col++) {
-                    for (int row = rowStart; row < rowStart + nSq; row++) {
 
-                        //generate square's key
-                        Key k = new Key(col, row);
+    /********************************************************************
+     * As above. If the child's board is already in known, its score is
+     * copied from there instead of being recounted. Allocates a unit
+     * mask, so the epoch breeds through Crossover with a reused one.
+     *******************************************************************/
+    public void crossover(Genome parent1, Genome parent2, int crossoverUnitCol, int crossoverUnitRow,
+                          GenomeSet known) {
+
+        boolean[] fromParent2 = new boolean[nSq];
+        for (int unit = 0; unit < nSq; unit++) {
+            fromParent2[unit] = unit / N >= crossoverUnitRow && unit % N >= crossoverUnitCol;
+        }
 
-                        //add parent 2's values to map
-                        this.genotype.replace(k, parentMap2.get(k)); // change part of child to match parent 2
+        crossover(parent1, parent2, fromParent2, known);
 
+    }
+
+
+    /********************************************************************
+     * Overwrite this genome with a child of two parents, reusing its
+     * storage. Unit u (numbered row-major, unit row * N + unit col) comes
+     * from parent 2 if fromParent2[u] is set & from parent 1 otherwise.
+     * If the child's board is already in known, its score is copied from
+     * there instead of being recounted.
+     *
+     * The child starts as a bulk copy of whichever parent gives it more
+     * units; then only the cells of the other parent's units that differ
+     * are written. Returns how many cells that was.
+     *******************************************************************/
+    public int crossover(Genome parent1, Genome parent2, boolean[] fromParent2, GenomeSet known) {
+
+        this.givens = parent1.givens;
+
+        int unitsFromParent2 = 0;
+        for (int unit = 0; unit < nSq; unit++) {
+            if (fromParent2[unit]) unitsFromParent2++;
+        }
+
+        // start with the parent that gives the most units
+        boolean baseIsParent2 = unitsFromParent2 * 2 > nSq;
+        Genome base = baseIsParent2 ? parent2 : parent1;
+        byte[] other = baseIsParent2 ? parent1.genotype : parent2.genotype;
+
+        System.arraycopy(base.genotype, 0, this.genotype, 0, genotype.length);
+
+        // change the other parent's units to match it, noting which lines
+        // actually change (every line on boards too wide for a long mask)
+        long hash = base.hash;
+        long changedRows = 0;
+        long changedCols = 0;
+        int copied = 0;
+
+        for (int unit = 0; unit < nSq; unit++) {
+
+            if (fromParent2[unit] == baseIsParent2) continue;
+
+            int rowStart = (unit / N) * N;
+            int colStart = (unit % N) * N;
+
+            for (int row = rowStart; row < rowStart + N; row++) {
+                for (int col = colStart; col < colStart + N; col++) {
+                    int offset = row * nSq + col;
+                    int oldValue = genotype[offset] & 0xFF;
+                    int newValue = other[offset] & 0xFF;
+                    if (oldValue != newValue) {
+                        genotype[offset] = (byte) newValue;
+                        hash ^= ZobristHash.key(offset, oldValue, nSq) ^ ZobristHash.key(offset, newValue, nSq);
+                        changedRows |= 1L << row;
+                        changedCols |= 1L << col;
+                        copied++;
                     }
                 }
-
             }
         }
 
-        // Calculate initial fitness score
-        try {
-            calcFitness(N);
-        } catch (Exception e) {
-            e.printStackTrace();
+        this.hash = hash;
+
+        // the same board as the base parent or one already scored
+        Genome match = copied == 0 ? base : known == null ? null : known.find(hash, genotype);
+        if (match != null) {
+            copyScore(match);
+            SolverMetrics.countReusedScore();
+            return copied;
         }
 
+        // parents are shared between threads, so one without counts is not
+        // given them here; score the child from scratch instead, counting it
+        // into its own tables so its mutation & local search stay O(1)
+        if (!base.countsValid) {
+            evaluate();
+            return copied;
+        }
+
+        copyCounts(base);
+        SolverMetrics.countIncrementalEvaluation();
+
+        // only the lines holding a changed cell need recounting
+        boolean wide = nSq > 64;
+        for (int line = 0; line < nSq; line++) {
+            if (wide || (changedRows & (1L << line)) != 0) recountLine(rowCounts, line, line * nSq, 1);
+            if (wide || (changedCols & (1L << line)) != 0) recountLine(colCounts, line, line, nSq);
+        }
+
+        this.fitnessScore = (maxError - error) / maxError;
+
+        return copied;
     }
 
 
     /********************************************************************
-     * Calculates genome's fitness score.
+     * Values missing from a row or a column, from its cells.
      *******************************************************************/
-    public double calcFitness(int N) throws Exception {
+    public int rowError(int row) {
+        return lineError(row * nSq, 1);
+    }
 
-        int nSq = N * N;
+    public int colError(int col) {
+        return lineError(col, nSq);
+    }
 
-        // calc error
-        double actualError = 0;
+    private int lineError(int start, int step) {
 
-        // check for row errors
-        for (int row = 0; row < nSq; row++) {
+        int distinct = 0;
 
-            Set<Integer> rowSet = new HashSet<>();
+        if (nSq <= BitboardFitness.MAX_VALUES) {
+            long mask = 0;
+            for (int i = 0, offset = start; i < nSq; i++, offset += step) {
+                mask |= 1L << genotype[offset];
+            }
+            distinct = Long.bitCount(mask);
+        } else {
+            boolean[] seen = new boolean[nSq + 1];
+            for (int i = 0, offset = start; i < nSq; i++, offset += step) {
+                if (!seen[genotype[offset] & 0xFF]) distinct++;
+                seen[genotype[offset] & 0xFF] = true;
+            }
+        }
 
-            for (int col = 0; col < nSq; col++) {
+        return nSq - distinct;
+    }
 
-                int value = genotype.get(new Key(col, row));
-                rowSet.add(value);
 
-            }
+    /********************************************************************
+     * Overwrite this genome with a copy of another of the same size,
+     * reusing its storage.
+     *******************************************************************/
+    public void copyFrom(Genome other) {
 
-            actualError += nSq - rowSet.size();
+        System.arraycopy(other.genotype, 0, this.genotype, 0, genotype.length);
+        this.givens = other.givens;
+        this.hash = other.hash;
 
-        }
+        copyScore(other);
 
-        // check for column errors
-        for (int col = 0; col < nSq; col++) {
+    }
 
-            Set<Integer> colSet = new HashSet<>();
 
-            for (int row = 0; row < nSq; row++) {
+    /********************************************************************
+     * Take the fitness score & error of another genome with the same
+     * board, along with its value counts if it has them.
+     *******************************************************************/
+    private void copyScore(Genome other) {
 
-                int value = genotype.get(new Key(col, row));
-                colSet.add(value);
+        this.fitnessScore = other.fitnessScore;
 
-            }
+        if (other.countsValid) {
+            copyCounts(other);
+        } else {
+            this.error = other.error;
+            this.countsValid = false;
+        }
 
-            actualError += nSq - colSet.size();
+    }
 
+
+    /********************************************************************
+     * Copy another genome's value counts & error into this genome's
+     * tables, allocating them if needed.
+     *******************************************************************/
+    private void copyCounts(Genome other) {
+
+        if (rowCounts == null) {
+            this.rowCounts = new byte[other.rowCounts.length];
+            this.colCounts = new byte[other.colCounts.length];
         }
 
+        System.arraycopy(other.rowCounts, 0, rowCounts, 0, rowCounts.length);
+        System.arraycopy(other.colCounts, 0, colCounts, 0, colCounts.length);
+        this.error = other.error;
+        this.countsValid = true;
+
+    }
+
+
+    /********************************************************************
+     * Calculates genome's fitness score from scratch.
+     *******************************************************************/
+    public double calcFitness(int N) throws Exception {
+
+        // count missing values in every row & column
+        evaluate();
+
+        // calc error
+        double actualError = error;
+
         // calc fitness
         double fitness = maxError - actualError;
         if (fitness < 0) throw new Exception("Fitness score cannot be negative.");
@@ -150,12 +395,105 @@ public class Genome implements Comparable, Cloneable {
 
 
     /********************************************************************
-     * Mutate genotype.
+     * Recompute the total error from scratch, rebuilding the value count
+     * tables in the same sweep so the next swap stays incremental.
+     *******************************************************************/
+    private void evaluate() {
+
+        SolverMetrics.countFullEvaluation();
+
+        countLines();
+
+        this.fitnessScore = (maxError - error) / maxError;
+    }
+
+
+    /********************************************************************
+     * Rebuild the row & column value counts and the total error.
+     *******************************************************************/
+    private void countLines() {
+
+        int stride = nSq + 1;
+        if (rowCounts == null) {
+            this.rowCounts = new byte[nSq * stride];
+            this.colCounts = new byte[nSq * stride];
+        } else {
+            Arrays.fill(rowCounts, (byte) 0);
+            Arrays.fill(colCounts, (byte) 0);
+        }
+        this.error = 0;
+        this.countsValid = true;
+
+        for (int line = 0; line < nSq; line++) {
+            error += nSq - countLine(rowCounts, line, line * nSq, 1);
+            error += nSq - countLine(colCounts, line, line, nSq);
+        }
+
+    }
+
+
+    /********************************************************************
+     * Count the values of one line into its slot of the count table.
+     * Cells are read from start, start + step, ... Returns the number of
+     * distinct values in the line.
+     *******************************************************************/
+    private int countLine(byte[] counts, int line, int start, int step) {
+
+        int base = line * (nSq + 1);
+        int distinct = 0;
+
+        for (int i = 0, offset = start; i < nSq; i++, offset += step) {
+            int slot = base + (genotype[offset] & 0xFF);
+            if (counts[slot] == 0) distinct++;
+            counts[slot]++;
+        }
+
+        return distinct;
+    }
+
+
+    /********************************************************************
+     * Re-count a single line & apply the change in its error.
+     *******************************************************************/
+    private void recountLine(byte[] counts, int line, int start, int step) {
+
+        int base = line * (nSq + 1);
+        int oldDistinct = 0;
+
+        for (int value = 0; value <= nSq; value++) {
+            if (counts[base + value] != 0) oldDistinct++;
+            counts[base + value] = 0;
+        }
+
+        error += oldDistinct - countLine(counts, line, start, step);
+    }
+
+
+    /********************************************************************
+     * Move one occurrence of a value in a line from oldValue to newValue,
+     * updating the error in O(1).
+     *******************************************************************/
+    private void replaceInLine(byte[] counts, int line, int oldValue, int newValue) {
+
+        int base = line * (nSq + 1);
+
+        if (--counts[base + oldValue] == 0) error++;
+        if (counts[base + newValue]++ == 0) error--;
+
+    }
+
+
+    /********************************************************************
+     * Mutate genotype, drawing the swap from the given random stream.
      *******************************************************************/
-    public void mutate(int N) {
+    public void mutate(int N, SplittableRandom r) {
+
+        if (givens != null) {
+            mutateFreeCells(r);
+            return;
+        }
 
         // randomly select a unit to mutate
-        r = new Random();
         int unitRow = r.nextInt(N);
         int unitCol = r.nextInt(N);
 
@@ -173,20 +511,129 @@ public class Genome implements Comparable, Cloneable {
         }
 
         // swap their values
-        Key k1 = new Key(row1, col1);
-        Key k2 = new Key(row2, col2);
+        swapCells(row1, col1, row2, col2);
+
+    }
 
-        int val1 = genotype.get(k1);
-        int val2 = genotype.get(k2);
 
-        genotype.replace(k1, val2);
-        genotype.replace(k2, val1);
+    /********************************************************************
+     * Mutate genotype of a puzzle, swapping two free cells in a random
+     * unit that has at least two.
+     *******************************************************************/
+    private void mutateFreeCells(SplittableRandom r) {
 
-        try {
-            calcFitness(N);
-        } catch (Exception e) {
-            e.printStackTrace();
+        int[] mutableUnits = givens.getMutableUnits();
+        if (mutableUnits.length == 0) return; // every cell is determined
+
+        int[] free = givens.getFreeCells(mutableUnits[r.nextInt(mutableUnits.length)]);
+
+        // randomly select two different free cells in the unit
+        int i = r.nextInt(free.length);
+        int j = r.nextInt(free.length - 1);
+        if (j >= i) j++;
+
+        swapCells(free[i] / nSq, free[i] % nSq, free[j] / nSq, free[j] % nSq);
+
+    }
+
+
+    /********************************************************************
+     * Swap the values of the cells at two offsets, such as two cells of
+     * a unit chosen by local search.
+     *******************************************************************/
+    public void swap(int offset1, int offset2) {
+        swapCells(offset1 / nSq, offset1 % nSq, offset2 / nSq, offset2 % nSq);
+    }
+
+
+    /********************************************************************
+     * How much the error would change if the cells at two offsets were
+     * swapped, in O(1) from the value counts. Negative is better.
+     *******************************************************************/
+    public int swapDelta(int offset1, int offset2) {
+
+        if (!countsValid) countLines();
+
+        int val1 = genotype[offset1] & 0xFF;
+        int val2 = genotype[offset2] & 0xFF;
+        if (val1 == val2) return 0;
+
+        int row1 = offset1 / nSq;
+        int col1 = offset1 % nSq;
+        int row2 = offset2 / nSq;
+        int col2 = offset2 % nSq;
+
+        // a line holding both cells keeps the same values
+        int delta = 0;
+        if (row1 != row2) {
+            delta += lineDelta(rowCounts, row1, val1, val2) + lineDelta(rowCounts, row2, val2, val1);
         }
+        if (col1 != col2) {
+            delta += lineDelta(colCounts, col1, val1, val2) + lineDelta(colCounts, col2, val2, val1);
+        }
+
+        return delta;
+    }
+
+
+    /********************************************************************
+     * The change in a line's error if one oldValue became newValue.
+     *******************************************************************/
+    private int lineDelta(byte[] counts, int line, int oldValue, int newValue) {
+
+        int base = line * (nSq + 1);
+        int delta = 0;
+
+        if (counts[base + oldValue] == 1) delta++;
+        if (counts[base + newValue] == 0) delta--;
+
+        return delta;
+    }
+
+
+    /********************************************************************
+     * How many other cells in the row & column of the cell at offset
+     * hold the same value.
+     *******************************************************************/
+    public int conflicts(int offset) {
+
+        if (!countsValid) countLines();
+
+        int value = genotype[offset] & 0xFF;
+        int stride = nSq + 1;
+
+        return rowCounts[(offset / nSq) * stride + value] + colCounts[(offset % nSq) * stride + value] - 2;
+    }
+
+
+    /********************************************************************
+     * Swap the values of two cells & update the fitness score.
+     *******************************************************************/
+    private void swapCells(int row1, int col1, int row2, int col2) {
+
+        if (!countsValid) countLines();
+
+        int offset1 = row1 * nSq + col1;
+        int offset2 = row2 * nSq + col2;
+
+        int val1 = genotype[offset1] & 0xFF;
+        int val2 = genotype[offset2] & 0xFF;
+
+        genotype[offset1] = (byte) val2;
+        genotype[offset2] = (byte) val1;
+
+        hash ^= ZobristHash.key(offset1, val1, nSq) ^ ZobristHash.key(offset1, val2, nSq)
+                ^ ZobristHash.key(offset2, val2, nSq) ^ ZobristHash.key(offset2, val1, nSq);
+
+        // only the two rows & two columns holding the cells can change
+        if (val1 != val2) {
+            replaceInLine(rowCounts, row1, val1, val2);
+            replaceInLine(colCounts, col1, val1, val2);
+            replaceInLine(rowCounts, row2, val2, val1);
+            replaceInLine(colCounts, col2, val2, val1);
+        }
+
+        this.fitnessScore = (maxError - error) / maxError;
 
     }
 
@@ -195,78 +642,221 @@ public class Genome implements Comparable, Cloneable {
      * Print genotype to terminal.
      *******************************************************************/
     public void printGenotype(int N) {
+        printBoard(N, getBoard());
+    }
+
+
+    /********************************************************************
+     * Print a row-major board of N^2 x N^2 values to terminal.
+     *******************************************************************/
+    public static void printBoard(int N, int[] board) {
 
         int nSq = N * N;
 
+        // build the whole board & print it at once
+        StringBuilder sb = new StringBuilder();
+
         for (int row = 0; row < nSq; row++) {
-            System.out.println();
+            sb.append('\n');
             if (row % N == 0 && row != 0) {
                 for (int i = 0; i < nSq; i++) {
-                    if (i % N == 0 && i != 0) System.out.print("+");
-                    System.out.print("--");
+                    if (i % N == 0 && i != 0) sb.append('+');
+                    sb.append("--");
                 }
-                System.out.println();
+                sb.append('\n');
             }
             for (int col = 0; col < nSq; col++) {
-                if (col % N == 0 && col != 0) System.out.print("|");
-                System.out.print(genotype.get(new Key(col, row)) + ",");
+                if (col % N == 0 && col != 0) sb.append('|');
+                sb.append(board[row * nSq + col]).append(',');
             }
         }
-        System.out.println();
-        System.out.println();
+        sb.append('\n');
+
+        System.out.println(sb);
 
     }
 
 
     /********************************************************************
-     * Create random unit.
+     * Fill a unit with a random permutation of the values 1...N^2.
      *******************************************************************/
-    private HashMap<Key, Integer> createRandomUnit(int N, int colOffset, int rowOffset) {
+    private void fillRandomUnit(int N, int colOffset, int rowOffset, SplittableRandom r) {
 
-        // Make randomly ordered list of values 1...N^2
-        ArrayList<Integer> values = new ArrayList<>();
-        for (int i = 1; i <= N * N; i++) {
-            values.add(i);
+        // Make randomly ordered list of values 1...N^2 (Fisher-Yates)
+        int[] values = new int[N * N];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i + 1;
+        }
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
         }
-        Collections.shuffle(values);
 
-        // Add values to map with Key composed of row and column number
-        HashMap<Key, Integer> unitMap = new HashMap<>();
+        // Write values into the unit's cells
         int valuesCount = 0;
 
         for (int col = 0; col < N; col++) {
             for (int row = 0; row < N; row++) {
 
-                //generate square's key
-                Key k = new Key(col + colOffset, row + rowOffset);
-
-                //add to unit with value
-                unitMap.put(k, values.get(valuesCount));
+                int offset = (row + rowOffset) * nSq + (col + colOffset);
+                genotype[offset] = (byte) values[valuesCount];
 
                 valuesCount++;
 
             }
         }
 
-        return unitMap;
+    }
+
+
+    /********************************************************************
+     * Fill a unit's free cells with a random permutation of the values
+     * the givens leave missing.
+     *******************************************************************/
+    private void fillFreeCells(int unit, SplittableRandom r) {
+
+        int[] free = givens.getFreeCells(unit);
+        int[] values = givens.getMissingValues(unit).clone();
+
+        // Fisher-Yates
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = r.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+
+        for (int i = 0; i < free.length; i++) {
+            genotype[free[i]] = (byte) values[i];
+        }
+
     }
 
 
     /********************************************************************
      * Getters & Setters
+     *
+     * Cell values are kept in a flat row-major byte array, so values
+     * must fit in 0...255 (N <= 15). The Key map accessors build a copy
+     * of the board and are for compatibility only; hot paths should use
+     * getCell() or getCells().
      *******************************************************************/
-    public HashMap<Key, Integer> getGenotype() {
+    public int getCell(int col, int row) {
+        return genotype[row * nSq + col] & 0xFF;
+    }
+
+    public byte[] getCells() {
         return genotype;
     }
 
+    public int[] getBoard() {
+        int[] board = new int[genotype.length];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = genotype[i] & 0xFF;
+        }
+        return board;
+    }
+
+    /********************************************************************
+     * The cells as a map from Key(col, row) to value, for code written
+     * against the old map-based genome. Changes made through put, putAll
+     * & replace write through to the cells, & the score catches up on the
+     * next calcFitness, as with the old map. Unlike the old map, the map
+     * is filled when it is made, so later changes to the genome do not
+     * show up in it.
+     *******************************************************************/
+    public HashMap<Key, Integer> getGenotype() {
+        return new CellMap();
+    }
+
     public void setGenotype(HashMap<Key, Integer> genotype) {
-        this.genotype = genotype;
+        for (Map.Entry<Key, Integer> entry : genotype.entrySet()) {
+            Key k = entry.getKey();
+            this.genotype[k.getRowNum() * nSq + k.getColNum()] = (byte) (int) entry.getValue();
+        }
+        this.hash = ZobristHash.hash(this.genotype, nSq);
+        evaluate();
     }
 
     public double getFitnessScore() {
         return fitnessScore;
     }
 
+    // rows & columns are each missing this many values in total
+    public int getError() {
+        return error;
+    }
+
+    public long getHash() {
+        return hash;
+    }
+
+    public Givens getGivens() {
+        return givens;
+    }
+
+
+    /********************************************************************
+     * Writes one cell outside the swap & crossover paths, keeping the
+     * hash up to date. The counts are rebuilt on the next swap & the
+     * score on the next calcFitness.
+     *******************************************************************/
+    private void writeCell(int offset, int value) {
+
+        int oldValue = genotype[offset] & 0xFF;
+        genotype[offset] = (byte) value;
+        hash ^= ZobristHash.key(offset, oldValue, nSq) ^ ZobristHash.key(offset, value, nSq);
+        countsValid = false;
+
+    }
+
+
+    /********************************************************************
+     * getGenotype()'s map, writing changes through to the cells.
+     *******************************************************************/
+    private class CellMap extends HashMap<Key, Integer> {
+
+        private static final long serialVersionUID = 1L;
+
+        private CellMap() {
+            super(nSq * nSq * 2);
+            for (int row = 0; row < nSq; row++) {
+                for (int col = 0; col < nSq; col++) {
+                    super.put(new Key(col, row), getCell(col, row));
+                }
+            }
+        }
+
+        @Override
+        public Integer put(Key key, Integer value) {
+            Integer old = super.put(key, value);
+            writeCell(key.getRowNum() * nSq + key.getColNum(), value);
+            return old;
+        }
+
+        @Override
+        public void putAll(Map<? extends Key, ? extends Integer> m) {
+            for (Map.Entry<? extends Key, ? extends Integer> entry : m.entrySet()) {
+                put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        @Override
+        public Integer replace(Key key, Integer value) {
+            return containsKey(key) ? put(key, value) : null;
+        }
+
+        @Override
+        public boolean replace(Key key, Integer oldValue, Integer value) {
+            if (!containsKey(key) || !Objects.equals(get(key), oldValue)) return false;
+            put(key, value);
+            return true;
+        }
+
+    }
+
 
     /********************************************************************
      * Overrides for comparing and cloning genomes.
@@ -274,7 +864,7 @@ public class Genome implements Comparable, Cloneable {
     @Override
     public int compareTo(Object o) {
         Genome g2 = (Genome) o;
-        return (int)(g2.getFitnessScore() * maxError) - (int)(fitnessScore * maxError);
+        return Double.compare(g2.getFitnessScore(), fitnessScore);
     }
 
     @Override
@@ -282,9 +872,14 @@ public class Genome implements Comparable, Cloneable {
         Genome clone = null;
         try {
             clone = (Genome) super.clone();
+            SolverMetrics.countGenomeAllocated();
 
-            //Copy new genotype object to cloned method
-            clone.setGenotype((HashMap<Key, Integer>) this.getGenotype().clone());
+            //Copy new genotype array to cloned method
+            clone.genotype = this.genotype.clone();
+            if (this.rowCounts != null) {
+                clone.rowCounts = this.rowCounts.clone();
+                clone.colCounts = this.colCounts.clone();
+            }
         }
         catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
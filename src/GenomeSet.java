@@ -0,0 +1,99 @@
+import java.util.Arrays;
+
+
+/************************************************************************************
+ * A fixed-capacity set of genomes keyed by board, for finding duplicates within
+ * a population.
+ *
+ * Open addressing with linear probing on the genomes' Zobrist hashes. Boards
+ * with equal hashes are compared cell by cell, so a hash collision never makes
+ * two different boards equal. The set holds references, so a genome must not
+ * change while it is in the set. Lookups may run on several threads at once as
+ * long as nothing is added.
+ ***********************************************************************************/
+public class GenomeSet {
+
+    private final long[] hashes;
+    private final Genome[] genomes; // null marks an empty slot
+    private final int mask;
+    private final int maxSize;
+    private int size;
+
+
+    /********************************************************************************
+     * Constructor. Holds up to maxSize genomes, at most half full.
+     *******************************************************************************/
+    public GenomeSet(int maxSize) {
+
+        int capacity = Integer.highestOneBit(Math.max(1, maxSize)) << 2;
+
+        this.hashes = new long[capacity];
+        this.genomes = new Genome[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+
+    }
+
+
+    /********************************************************************************
+     * Adds g unless a genome with the same board is already in the set. Returns
+     * true if it was added.
+     *******************************************************************************/
+    public boolean add(Genome g) {
+
+        long hash = g.getHash();
+        int slot = slot(hash);
+
+        while (genomes[slot] != null) {
+            if (hashes[slot] == hash && sameBoard(genomes[slot], g)) return false;
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == maxSize) throw new IllegalStateException("set is full");
+
+        hashes[slot] = hash;
+        genomes[slot] = g;
+        size++;
+        return true;
+    }
+
+
+    /********************************************************************************
+     * The genome in the set with the same board as cells, or null.
+     *******************************************************************************/
+    public Genome find(long hash, byte[] cells) {
+
+        for (int slot = slot(hash); genomes[slot] != null; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && Arrays.equals(genomes[slot].getCells(), cells)) return genomes[slot];
+        }
+
+        return null;
+    }
+
+
+    /********************************************************************************
+     * Empties the set.
+     *******************************************************************************/
+    public void clear() {
+        Arrays.fill(genomes, null);
+        size = 0;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int size() {
+        return size;
+    }
+
+
+    private int slot(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static boolean sameBoard(Genome a, Genome b) {
+        return Arrays.equals(a.getCells(), b.getCells());
+    }
+
+}
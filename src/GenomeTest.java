@@ -2,6 +2,7 @@ import org.junit.Test;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.SplittableRandom;
 import static org.junit.Assert.assertEquals;
 
 
@@ -182,4 +183,163 @@ public class GenomeTest {
 
     }
 
+    @Test
+    public void testMutateUpdatesFitness() throws Exception {
+
+        // create genome
+        SplittableRandom r = new SplittableRandom(7);
+        Genome g = new Genome(3, r);
+
+        // incremental fitness after each swap should match a full rescan
+        for (int i = 0; i < 1000; i++) {
+            g.mutate(3, r);
+            double incremental = g.getFitnessScore();
+            assertEquals(g.calcFitness(3), incremental, 0.0001);
+        }
+
+    }
+
+    @Test
+    public void testChildFitness() throws Exception {
+
+        // create parents
+        Genome parent1 = new Genome(3);
+        Genome parent2 = new Genome(3);
+
+        // partially recomputed child fitness should match a full rescan
+        for (int unitCol = 0; unitCol < 3; unitCol++) {
+            for (int unitRow = 0; unitRow < 3; unitRow++) {
+                Genome child = new Genome(3, parent1, parent2, unitCol, unitRow);
+                double incremental = child.getFitnessScore();
+                assertEquals(child.calcFitness(3), incremental, 0.0001);
+            }
+        }
+
+    }
+
+    @Test
+    public void testHashTracksChanges() throws Exception {
+
+        SplittableRandom r = new SplittableRandom(11);
+        Genome parent1 = new Genome(3, r);
+        Genome parent2 = new Genome(3, r);
+
+        // swaps update the hash incrementally
+        for (int i = 0; i < 100; i++) {
+            parent1.mutate(3, r);
+            assertEquals(ZobristHash.hash(parent1.getCells(), 9), parent1.getHash());
+        }
+
+        GenomeSet known = new GenomeSet(2);
+        known.add(parent1);
+        known.add(parent2);
+
+        for (int unitCol = 0; unitCol < 3; unitCol++) {
+            for (int unitRow = 0; unitRow < 3; unitRow++) {
+
+                Genome child = new Genome(3, parent1, parent1, 0, 0);
+                child.crossover(parent1, parent2, unitCol, unitRow, known);
+                assertEquals(ZobristHash.hash(child.getCells(), 9), child.getHash());
+
+                // a child scored from a known board matches a full rescan
+                double incremental = child.getFitnessScore();
+                assertEquals(child.calcFitness(3), incremental, 0.0001);
+                assertEquals(unitCol == 0 && unitRow == 0, known.find(child.getHash(), child.getCells()) != null);
+            }
+        }
+
+    }
+
+    @Test
+    public void testSwapDeltaMatchesSwap() {
+
+        SplittableRandom r = new SplittableRandom(5);
+        Genome g = new Genome(3, r);
+        int[] cells = new int[9];
+
+        // the predicted change in error matches the change the swap makes
+        for (int i = 0; i < 1000; i++) {
+            int count = LocalSearch.randomUnit(g, 3, r, cells);
+            int a = cells[r.nextInt(count)];
+            int b = cells[r.nextInt(count)];
+
+            int before = g.getError();
+            int delta = g.swapDelta(a, b);
+            g.swap(a, b);
+            assertEquals(before + delta, g.getError());
+        }
+
+    }
+
+    @Test
+    public void testCrossoversScoreChildren() throws Exception {
+
+        SplittableRandom r = new SplittableRandom(3);
+        Genome parent1 = new Genome(3, r);
+        Genome parent2 = new Genome(3, r);
+        Genome child1 = new Genome(3, r);
+        Genome child2 = new Genome(3, r);
+        boolean[] fromParent2 = new boolean[9];
+
+        // every operator's children match a full rescan & keep whole units
+        for (Crossover crossover : Crossover.values()) {
+            for (int i = 0; i < 20; i++) {
+                crossover.breed(3, parent1, parent2, child1, child2, r, null, fromParent2);
+                for (Genome child : new Genome[] {child1, child2}) {
+                    assertEquals(ZobristHash.hash(child.getCells(), 9), child.getHash());
+                    double incremental = child.getFitnessScore();
+                    assertEquals(child.calcFitness(3), incremental, 0.0001);
+                    for (int unit = 0; unit < 9; unit++) {
+                        Set<Integer> unitValues = new HashSet<>();
+                        for (int cell = 0; cell < 9; cell++) {
+                            unitValues.add(child.getCell((unit % 3) * 3 + cell % 3, (unit / 3) * 3 + cell / 3));
+                        }
+                        assertEquals(9, unitValues.size());
+                    }
+                }
+            }
+        }
+
+    }
+
+    @Test
+    public void testGivensStayFixed() {
+
+        // 4x4 puzzle with one given in each unit
+        int[] puzzle = {
+                1, 0, 0, 0,
+                0, 0, 0, 2,
+                0, 3, 0, 0,
+                0, 0, 4, 0
+        };
+        Givens givens = new Givens(2, puzzle);
+
+        Genome g = new Genome(2, givens, new SplittableRandom(1));
+
+        for (int i = 0; i < 100; i++) {
+
+            g.mutate(2, new SplittableRandom(i));
+
+            // givens keep their values
+            byte[] cells = g.getCells();
+            for (int offset = 0; offset < puzzle.length; offset++) {
+                if (puzzle[offset] != 0) assertEquals(puzzle[offset], cells[offset]);
+            }
+
+            // every unit is still a permutation of 1...4
+            for (int unitRow = 0; unitRow < 2; unitRow++) {
+                for (int unitCol = 0; unitCol < 2; unitCol++) {
+                    Set<Integer> unitValues = new HashSet<>();
+                    for (int row = unitRow * 2; row < unitRow * 2 + 2; row++) {
+                        for (int col = unitCol * 2; col < unitCol * 2 + 2; col++) {
+                            unitValues.add(g.getCell(col, row));
+                        }
+                    }
+                    assertEquals(4, unitValues.size());
+                }
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,123 @@
+import java.util.Arrays;
+
+
+/************************************************************************************
+ * The given (fixed) cells of a sudoku puzzle, shared by every genome in a
+ * population.
+ *
+ * Genomes keep each unit a permutation of 1...N^2, so for every unit this
+ * records which cells are free to change & which values are left to place.
+ ***********************************************************************************/
+public class Givens {
+
+    private final int N;
+    private final int nSq;
+
+    // given values stored row-major, 0 for free cells
+    private final byte[] values;
+
+    // per unit (index = unitRow * N + unitCol): offsets of the free cells &
+    // the values not given in that unit
+    private final int[][] freeCells;
+    private final int[][] missingValues;
+
+    // units with at least two free cells, the only ones a swap can change
+    private final int[] mutableUnits;
+
+
+    /********************************************************************************
+     * Constructs the givens of a puzzle. The puzzle is row-major with 0 for
+     * empty cells, as used by Solver.
+     *******************************************************************************/
+    public Givens(int N, int[] puzzle) {
+
+        int nSq = N * N;
+
+        if (puzzle.length != nSq * nSq) throw new IllegalArgumentException("puzzle must have "
+                + (nSq * nSq) + " cells");
+
+        this.N = N;
+        this.nSq = nSq;
+        this.values = new byte[puzzle.length];
+        this.freeCells = new int[nSq][];
+        this.missingValues = new int[nSq][];
+
+        int numMutable = 0;
+        int[] mutable = new int[nSq];
+
+        for (int unitRow = 0; unitRow < N; unitRow++) {
+            for (int unitCol = 0; unitCol < N; unitCol++) {
+
+                boolean[] given = new boolean[nSq + 1];
+                int[] free = new int[nSq];
+                int numFree = 0;
+
+                for (int row = unitRow * N; row < (unitRow + 1) * N; row++) {
+                    for (int col = unitCol * N; col < (unitCol + 1) * N; col++) {
+
+                        int offset = row * nSq + col;
+                        int value = puzzle[offset];
+
+                        if (value < 0 || value > nSq) throw new IllegalArgumentException(
+                                "cell value out of range: " + value);
+
+                        if (value == 0) {
+                            free[numFree++] = offset;
+                            continue;
+                        }
+
+                        if (given[value]) throw new IllegalArgumentException("value " + value
+                                + " is given twice in unit " + unitCol + ", " + unitRow);
+
+                        given[value] = true;
+                        values[offset] = (byte) value;
+                    }
+                }
+
+                int[] missing = new int[numFree];
+                int numMissing = 0;
+                for (int value = 1; value <= nSq; value++) {
+                    if (!given[value]) missing[numMissing++] = value;
+                }
+
+                int unit = unitRow * N + unitCol;
+                freeCells[unit] = Arrays.copyOf(free, numFree);
+                missingValues[unit] = missing;
+
+                if (numFree >= 2) mutable[numMutable++] = unit;
+            }
+        }
+
+        this.mutableUnits = Arrays.copyOf(mutable, numMutable);
+
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getN() {
+        return N;
+    }
+
+    public byte[] getValues() {
+        return values;
+    }
+
+    public boolean isFixed(int offset) {
+        return values[offset] != 0;
+    }
+
+    public int[] getFreeCells(int unit) {
+        return freeCells[unit];
+    }
+
+    public int[] getMissingValues(int unit) {
+        return missingValues[unit];
+    }
+
+    public int[] getMutableUnits() {
+        return mutableUnits;
+    }
+
+}
@@ -0,0 +1,200 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+
+/************************************************************************************
+ * An island model genetic algorithm. Several sub-populations evolve on their own
+ * threads & every few generations send copies of their fittest genomes to a
+ * neighbouring island.
+ ***********************************************************************************/
+public class IslandModel {
+
+    /********************************************************************************
+     * How islands are connected for migration.
+     *
+     * RING - island i always sends to island i + 1
+     * RANDOM - each island sends to a randomly chosen other island
+     *******************************************************************************/
+    public enum Topology { RING, RANDOM }
+
+    // size of sudoku board
+    private int N;
+
+    // migration parameters
+    private final int migrationInterval;
+    private final int numMigrants;
+    private final Topology topology;
+
+    // islands & per island stats
+    private GeneticAlgorithm[] islands;
+    private int[] generations;
+    private int[] migrantsReceived;
+
+    private boolean solutionFound;
+    private GeneticAlgorithm fittestIsland;
+
+    private SplittableRandom r;
+    private ExecutorService executor;
+
+
+    /********************************************************************************
+     * Constructor. Creates numIslands populations of islandPopSize genomes, each
+     * seeded from its own stream split off the given seed.
+     *******************************************************************************/
+    public IslandModel(int N, int numIslands, int islandPopSize, int migrationInterval,
+                       int numMigrants, Topology topology, long seed) {
+
+        if (numIslands < 1) throw new IllegalArgumentException("numIslands must be at least 1");
+        if (migrationInterval < 1) throw new IllegalArgumentException("migrationInterval must be at least 1");
+        if (numMigrants < 0 || numMigrants > islandPopSize) throw new IllegalArgumentException(
+                "numMigrants must be between 0 and the island population size");
+
+        this.N = N;
+        this.migrationInterval = migrationInterval;
+        this.numMigrants = numMigrants;
+        this.topology = topology;
+
+        this.r = new SplittableRandom(seed);
+        this.islands = new GeneticAlgorithm[numIslands];
+        this.generations = new int[numIslands];
+        this.migrantsReceived = new int[numIslands];
+
+        for (int i = 0; i < numIslands; i++) {
+            islands[i] = new GeneticAlgorithm(N, islandPopSize, 1, r.nextLong());
+        }
+
+        this.fittestIsland = islands[0];
+        this.executor = Executors.newFixedThreadPool(numIslands, runnable -> {
+            Thread t = new Thread(runnable);
+            t.setDaemon(true);
+            return t;
+        });
+
+    }
+
+
+    /********************************************************************************
+     * Evolves every island for migrationInterval generations (or until it finds a
+     * solution) in parallel, then migrates the fittest genomes between islands.
+     *******************************************************************************/
+    public void epoch() throws Exception {
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = 0; i < islands.length; i++) {
+            int island = i;
+            tasks.add(() -> {
+                evolveIsland(island);
+                return null;
+            });
+        }
+
+        for (Future<Void> f : executor.invokeAll(tasks)) {
+            f.get();
+        }
+
+        // find the best island
+        for (GeneticAlgorithm island : islands) {
+            if (island.getFittestGenome().getFitnessScore() > fittestIsland.getFittestGenome().getFitnessScore()) {
+                fittestIsland = island;
+            }
+            if (island.getSolutionFound()) solutionFound = true;
+        }
+
+        if (!solutionFound && islands.length > 1 && numMigrants > 0) migrate();
+
+    }
+
+
+    /********************************************************************************
+     * Runs migrationInterval epochs on one island.
+     *******************************************************************************/
+    private void evolveIsland(int island) throws Exception {
+
+        GeneticAlgorithm genAlg = islands[island];
+
+        for (int i = 0; i < migrationInterval && !genAlg.getSolutionFound(); i++) {
+
+            genAlg.epoch();
+            generations[island]++;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Sends copies of each island's fittest genomes to its destination island.
+     * All emigrants are picked before any island receives immigrants.
+     *******************************************************************************/
+    private void migrate() throws Exception {
+
+        List<ArrayList<Genome>> emigrants = new ArrayList<>();
+        for (GeneticAlgorithm island : islands) {
+            emigrants.add(island.emigrants(numMigrants));
+        }
+
+        for (int i = 0; i < islands.length; i++) {
+
+            int destination;
+            if (topology == Topology.RING) {
+                destination = (i + 1) % islands.length;
+            } else {
+                destination = (i + 1 + r.nextInt(islands.length - 1)) % islands.length;
+            }
+
+            islands[destination].immigrate(emigrants.get(i));
+            migrantsReceived[destination] += numMigrants;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Prints each island's generation count, best fitness, mutation rate &
+     * number of genomes received.
+     *******************************************************************************/
+    public void printStats() {
+
+        for (int i = 0; i < islands.length; i++) {
+            System.out.println("island " + i
+                    + " generation " + generations[i]
+                    + " best fitness: " + islands[i].getFittestGenome().getFitnessScore()
+                    + " mutation rate: " + islands[i].getMutationRate()
+                    + " migrants received: " + migrantsReceived[i]);
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Stops the island threads.
+     *******************************************************************************/
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+
+    /********************************************************************************
+     * Getters & Setters
+     *******************************************************************************/
+    public GeneticAlgorithm[] getIslands() {
+        return islands;
+    }
+
+    public int getGenerations(int island) {
+        return generations[island];
+    }
+
+    public Genome getFittestGenome() {
+        return fittestIsland.getFittestGenome();
+    }
+
+    public boolean getSolutionFound() {
+        return solutionFound;
+    }
+
+}
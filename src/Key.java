@@ -1,5 +1,6 @@
 /************************************************************************************
- * A key object composed of a column number & row number
+ * A key object composed of a column number & row number. Only used by the
+ * Genome map accessors; genomes store their cells in a flat array.
  ***********************************************************************************/
 public class Key {
 
@@ -19,6 +20,18 @@ public class Key {
     }
 
 
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getColNum() {
+        return colNum;
+    }
+
+    public int getRowNum() {
+        return rowNum;
+    }
+
+
     /********************************************************************************
      * Determines if two keys are the same.
      *
@@ -0,0 +1,115 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/************************************************************************************
+ * A fixed-size, thread-safe histogram of nanosecond latencies.
+ *
+ * Values are bucketed log-linearly: each power of two is split into 32 equal
+ * sub-buckets, so any recorded value is reported to within about 3%.
+ ***********************************************************************************/
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF = SUB_BUCKETS / 2;
+
+    // exact buckets below SUB_BUCKETS, then HALF buckets per power of two
+    private static final int NUM_BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /********************************************************************************
+     * Records one latency. Negative values are counted as 0.
+     *******************************************************************************/
+    public void record(long nanos) {
+
+        if (nanos < 0) nanos = 0;
+
+        counts.incrementAndGet(bucketOf(nanos));
+        totalCount.incrementAndGet();
+
+        long currentMax;
+        while (nanos > (currentMax = max.get()) && !max.compareAndSet(currentMax, nanos)) { }
+
+    }
+
+
+    /********************************************************************************
+     * The value at or below which the given percentage (0...100) of recorded
+     * latencies fall, rounded up to the top of its bucket.
+     *******************************************************************************/
+    public long percentile(double percent) {
+
+        long count = totalCount.get();
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percent / 100.0);
+        if (target < 1) target = 1;
+
+        long seen = 0;
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            seen += counts.get(bucket);
+            if (seen >= target) return Math.min(highestValueIn(bucket), max.get());
+        }
+
+        return max.get();
+    }
+
+
+    /********************************************************************************
+     * Clears all recorded values.
+     *******************************************************************************/
+    public void reset() {
+
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            counts.set(bucket, 0);
+        }
+        totalCount.set(0);
+        max.set(0);
+
+    }
+
+
+    /********************************************************************************
+     * Bucket index. Values below SUB_BUCKETS get a bucket each. Larger values are
+     * grouped by their highest set bit, & each group is split into HALF buckets
+     * by the bits just below it.
+     *******************************************************************************/
+    private static int bucketOf(long value) {
+
+        if (value < SUB_BUCKETS) return (int) value;
+
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS + 1;
+        int subBucket = (int) (value >>> shift) - HALF;
+
+        return SUB_BUCKETS + (shift - 1) * HALF + subBucket;
+    }
+
+
+    private static long highestValueIn(int bucket) {
+
+        if (bucket < SUB_BUCKETS) return bucket;
+
+        int shift = (bucket - SUB_BUCKETS) / HALF + 1;
+        long subBucket = (bucket - SUB_BUCKETS) % HALF + HALF;
+
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+}
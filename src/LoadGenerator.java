@@ -0,0 +1,168 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/************************************************************************************
+ * Load generator for SolverServer. Opens a number of connections & keeps up to
+ * window requests outstanding on each, sending the next puzzle as each
+ * response comes back, until every connection has had its share of the
+ * requests answered. Latency is measured from sending a request to reading
+ * its response.
+ ***********************************************************************************/
+public class LoadGenerator {
+
+    private final String host;
+    private final int port;
+    private final List<String> puzzles;
+
+    // stats for the last run
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final AtomicLong numSolved = new AtomicLong();
+    private final AtomicLong numFailed = new AtomicLong();
+    private long elapsedTime;
+
+
+    /********************************************************************************
+     * Constructor. Requests cycle through puzzles, given as PuzzleFormat lines.
+     *******************************************************************************/
+    public LoadGenerator(String host, int port, List<String> puzzles) {
+
+        if (puzzles.isEmpty()) throw new IllegalArgumentException("no puzzles");
+
+        this.host = host;
+        this.port = port;
+        this.puzzles = puzzles;
+    }
+
+
+    /********************************************************************************
+     * Sends numRequests requests, spread over numConnections connections, each
+     * followed by the budget options in options (empty for none, else starting
+     * with a tab).
+     *******************************************************************************/
+    public void run(int numConnections, int numRequests, int window, String options) throws Exception {
+
+        if (numConnections < 1) throw new IllegalArgumentException("numConnections must be at least 1");
+        if (window < 1) throw new IllegalArgumentException("window must be at least 1");
+
+        latency.reset();
+        numSolved.set(0);
+        numFailed.set(0);
+
+        List<Thread> clients = new ArrayList<>();
+        List<Exception> errors = new ArrayList<>();
+
+        long startTime = System.nanoTime();
+
+        for (int c = 0; c < numConnections; c++) {
+            int first = c * numRequests / numConnections;
+            int last = (c + 1) * numRequests / numConnections;
+            Thread client = new Thread(() -> {
+                try {
+                    runConnection(first, last, window, options);
+                } catch (Exception e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            }, "load-client-" + c);
+            client.start();
+            clients.add(client);
+        }
+
+        for (Thread client : clients) {
+            client.join();
+        }
+
+        elapsedTime = System.nanoTime() - startTime;
+
+        if (!errors.isEmpty()) throw errors.get(0);
+
+    }
+
+
+    /********************************************************************************
+     * Sends requests first...last-1 on one connection, with ids that index the
+     * send times.
+     *******************************************************************************/
+    private void runConnection(int first, int last, int window, String options) throws IOException {
+
+        long[] sendTimes = new long[last - first];
+
+        try (Socket socket = new Socket(host, port)) {
+
+            socket.setTcpNoDelay(true);
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                    StandardCharsets.UTF_8));
+            Writer out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+
+            int sent = 0;
+            for (int received = 0; received < sendTimes.length; received++) {
+
+                // top the window up, then wait for the next response
+                while (sent < sendTimes.length && sent - received < window) {
+                    sendTimes[sent] = System.nanoTime();
+                    out.write((first + sent) + "\t" + puzzles.get((first + sent) % puzzles.size()) + options + "\n");
+                    sent++;
+                }
+                out.flush();
+
+                String line = in.readLine();
+                if (line == null) throw new IOException("server closed the connection");
+
+                int tab = line.indexOf('\t');
+                int index = Integer.parseInt(line.substring(0, tab)) - first;
+                latency.record(System.nanoTime() - sendTimes[index]);
+
+                String result = line.substring(tab + 1);
+                if (result.equals("unsolved") || result.equals("timeout") || result.startsWith("error")) {
+                    numFailed.incrementAndGet();
+                } else {
+                    numSolved.incrementAndGet();
+                }
+            }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Prints throughput & latency percentiles of the last run.
+     *******************************************************************************/
+    public void printStats() {
+
+        double seconds = elapsedTime / 1e9;
+
+        System.out.println("requests: " + latency.getCount() + " solved: " + numSolved.get()
+                + " failed: " + numFailed.get());
+        System.out.println("time (s): " + seconds);
+        System.out.println("throughput (requests/s): " + (latency.getCount() / seconds));
+        System.out.println("p50 latency (ns): " + latency.percentile(50));
+        System.out.println("p99 latency (ns): " + latency.percentile(99));
+        System.out.println("p99.9 latency (ns): " + latency.percentile(99.9));
+        System.out.println("max latency (ns): " + latency.getMax());
+
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getNumSolved() {
+        return numSolved.get();
+    }
+
+}
@@ -0,0 +1,98 @@
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * A local improvement stage applied to each child a GeneticAlgorithm breeds,
+ * making the search memetic.
+ *
+ * improve() may only swap two cells of the same unit, so every unit stays a
+ * permutation & givens stay fixed. It is called from several worker threads
+ * at once, each with its own genome & random stream, so implementations must
+ * not keep state between calls. toString() gives the mode that forMode()
+ * turns back into the same search.
+ ***********************************************************************************/
+public interface LocalSearch {
+
+    // leaves every child as bred
+    LocalSearch OFF = new LocalSearch() {
+        @Override
+        public void improve(Genome g, int N, SplittableRandom r, int[] cells) { }
+
+        @Override
+        public String toString() {
+            return "off";
+        }
+    };
+
+
+    /********************************************************************************
+     * Improves a genome of an N^2 x N^2 board in place. cells is scratch space
+     * with room for N^2 ints, which a worker reuses from one call to the next.
+     *******************************************************************************/
+    void improve(Genome g, int N, SplittableRandom r, int[] cells);
+
+
+    /********************************************************************************
+     * Creates a search from its mode: "off", "sa:K" for simulated annealing or
+     * "mc:K" for min-conflicts, with a budget of K steps per genome. Annealing
+     * may add its start & end temperatures, "sa:K:T0:T1".
+     *******************************************************************************/
+    static LocalSearch forMode(String mode) {
+
+        if (mode.equals("off")) return OFF;
+
+        String[] parts = mode.split(":");
+
+        try {
+            if (parts[0].equals("sa") && parts.length == 2) {
+                return new SimulatedAnnealing(Integer.parseInt(parts[1]));
+            }
+            if (parts[0].equals("sa") && parts.length == 4) {
+                return new SimulatedAnnealing(Integer.parseInt(parts[1]), Double.parseDouble(parts[2]),
+                        Double.parseDouble(parts[3]));
+            }
+            if (parts[0].equals("mc") && parts.length == 2) {
+                return new MinConflicts(Integer.parseInt(parts[1]));
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad number in local search: " + mode);
+        }
+
+        throw new IllegalArgumentException("unknown local search: " + mode);
+    }
+
+
+    /********************************************************************************
+     * Writes the offsets of the swappable cells of a random unit into cells &
+     * returns how many there are: every cell of a unit on a blank board, the
+     * free cells of a unit with at least two on a puzzle. Returns 0 if no unit
+     * has two free cells.
+     *******************************************************************************/
+    static int randomUnit(Genome g, int N, SplittableRandom r, int[] cells) {
+
+        int nSq = N * N;
+        Givens givens = g.getGivens();
+
+        if (givens != null) {
+            int[] mutableUnits = givens.getMutableUnits();
+            if (mutableUnits.length == 0) return 0;
+
+            int[] free = givens.getFreeCells(mutableUnits[r.nextInt(mutableUnits.length)]);
+            System.arraycopy(free, 0, cells, 0, free.length);
+            return free.length;
+        }
+
+        int unitRow = r.nextInt(N);
+        int unitCol = r.nextInt(N);
+
+        int count = 0;
+        for (int row = unitRow * N; row < unitRow * N + N; row++) {
+            for (int col = unitCol * N; col < unitCol * N + N; col++) {
+                cells[count++] = row * nSq + col;
+            }
+        }
+
+        return count;
+    }
+
+}
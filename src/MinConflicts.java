@@ -0,0 +1,71 @@
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * Min-conflicts on swaps within a unit.
+ *
+ * Each step picks a random unit & a random cell in it that shares its value
+ * with another cell of its row or column, then makes the swap with another
+ * cell of the unit that lowers the error most. Sideways swaps are taken too,
+ * so the search can cross plateaus; a step with only worse swaps changes
+ * nothing. Stops early on a solution.
+ ***********************************************************************************/
+public class MinConflicts implements LocalSearch {
+
+    private final int steps;
+
+
+    /********************************************************************************
+     * Constructor. steps is the budget per genome.
+     *******************************************************************************/
+    public MinConflicts(int steps) {
+
+        if (steps < 1) throw new IllegalArgumentException("steps must be at least 1");
+
+        this.steps = steps;
+    }
+
+
+    @Override
+    public void improve(Genome g, int N, SplittableRandom r, int[] cells) {
+
+        for (int step = 0; step < steps && g.getError() > 0; step++) {
+
+            int count = LocalSearch.randomUnit(g, N, r, cells);
+            if (count < 2) return;
+
+            // a random conflicted cell, found by scanning from a random start
+            int start = r.nextInt(count);
+            int conflicted = -1;
+            for (int k = 0; k < count && conflicted < 0; k++) {
+                int i = (start + k) % count;
+                if (g.conflicts(cells[i]) > 0) conflicted = i;
+            }
+            if (conflicted < 0) continue;
+
+            // the best partner, ties broken by scan order from a random start
+            int best = -1;
+            int bestDelta = Integer.MAX_VALUE;
+            start = r.nextInt(count);
+            for (int k = 0; k < count; k++) {
+                int j = (start + k) % count;
+                if (j == conflicted) continue;
+                int delta = g.swapDelta(cells[conflicted], cells[j]);
+                if (delta < bestDelta) {
+                    bestDelta = delta;
+                    best = j;
+                }
+            }
+
+            if (bestDelta <= 0) g.swap(cells[conflicted], cells[best]);
+        }
+
+    }
+
+
+    @Override
+    public String toString() {
+        return "mc:" + steps;
+    }
+
+}
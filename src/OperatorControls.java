@@ -0,0 +1,102 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/************************************************************************************
+ * The operator settings a GeneticAlgorithm uses for its next epoch. A
+ * ControlPolicy adjusts them between epochs.
+ *
+ * Setters clamp to the valid range rather than throwing, so policies can
+ * simply step a setting up or down.
+ ***********************************************************************************/
+public class OperatorControls {
+
+    private final int popSize;
+    private final int nSq;
+
+    private int mutationRate;     // percent of survivors mutated each epoch
+    private int mutationStrength; // swaps made in each mutated survivor
+    private int tournamentSize;   // genomes drawn per tournament
+    private int eliteCount;       // fittest genomes copied unchanged
+
+
+    /********************************************************************************
+     * Constructor.
+     *******************************************************************************/
+    public OperatorControls(int N, int popSize, int mutationRate, int mutationStrength, int tournamentSize,
+                            int eliteCount) {
+
+        this.popSize = popSize;
+        this.nSq = N * N;
+
+        setMutationRate(mutationRate);
+        setMutationStrength(mutationStrength);
+        setTournamentSize(tournamentSize);
+        setEliteCount(eliteCount);
+
+    }
+
+
+    /********************************************************************************
+     * Writes the settings, for a checkpoint.
+     *******************************************************************************/
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(mutationRate);
+        out.writeInt(mutationStrength);
+        out.writeInt(tournamentSize);
+        out.writeInt(eliteCount);
+    }
+
+
+    /********************************************************************************
+     * Reads settings saved by write.
+     *******************************************************************************/
+    public void read(DataInput in) throws IOException {
+        setMutationRate(in.readInt());
+        setMutationStrength(in.readInt());
+        setTournamentSize(in.readInt());
+        setEliteCount(in.readInt());
+    }
+
+
+    /********************************************************************************
+     * Getters & Setters
+     *******************************************************************************/
+    public int getMutationRate() {
+        return mutationRate;
+    }
+
+    // 0...100
+    public void setMutationRate(int mutationRate) {
+        this.mutationRate = Math.max(0, Math.min(100, mutationRate));
+    }
+
+    public int getMutationStrength() {
+        return mutationStrength;
+    }
+
+    // 1...N^2
+    public void setMutationStrength(int mutationStrength) {
+        this.mutationStrength = Math.max(1, Math.min(nSq, mutationStrength));
+    }
+
+    public int getTournamentSize() {
+        return tournamentSize;
+    }
+
+    // 2...population size
+    public void setTournamentSize(int tournamentSize) {
+        this.tournamentSize = Math.max(2, Math.min(popSize, tournamentSize));
+    }
+
+    public int getEliteCount() {
+        return eliteCount;
+    }
+
+    // 1...half the population
+    public void setEliteCount(int eliteCount) {
+        this.eliteCount = Math.max(1, Math.min(popSize / 2, eliteCount));
+    }
+
+}
@@ -0,0 +1,100 @@
+/************************************************************************************
+ * Reads & writes puzzles as single lines of text.
+ *
+ * Boards up to 35x35 use one character per cell, row by row: '.' or '0' for an
+ * empty cell, '1'...'9' & then 'A'...'Z' for values 10...35 (so a 9x9 puzzle is
+ * the usual 81 character line). Larger boards are written as comma separated
+ * numbers. The board size is worked out from the number of cells.
+ ***********************************************************************************/
+public class PuzzleFormat {
+
+    private PuzzleFormat() {
+    }
+
+
+    /********************************************************************************
+     * Parses a puzzle line into a row-major board, 0 for empty cells. Throws
+     * IllegalArgumentException unless every value is 0...N^2.
+     *******************************************************************************/
+    public static int[] parse(String line) {
+
+        line = line.trim();
+
+        if (line.indexOf(',') >= 0) {
+            String[] values = line.split(",");
+            int[] board = new int[values.length];
+            for (int i = 0; i < values.length; i++) {
+                board[i] = Integer.parseInt(values[i].trim());
+            }
+            checkValues(board);
+            return board;
+        }
+
+        int[] board = new int[line.length()];
+        for (int i = 0; i < board.length; i++) {
+            board[i] = valueOf(line.charAt(i));
+        }
+        checkValues(board);
+        return board;
+    }
+
+
+    /********************************************************************************
+     * Formats a board as a single line.
+     *******************************************************************************/
+    public static String format(int[] board) {
+
+        int nSq = sizeOf(board.length);
+        nSq *= nSq;
+
+        StringBuilder sb = new StringBuilder(board.length * (nSq <= 35 ? 1 : 3));
+
+        for (int i = 0; i < board.length; i++) {
+            if (nSq <= 35) {
+                sb.append(board[i] == 0 ? '.' : Character.toUpperCase(Character.forDigit(board[i], 36)));
+            } else {
+                if (i > 0) sb.append(',');
+                sb.append(board[i]);
+            }
+        }
+
+        return sb.toString();
+    }
+
+
+    /********************************************************************************
+     * Board size N of a board with numCells cells (N^4 == numCells).
+     *******************************************************************************/
+    public static int sizeOf(int numCells) {
+
+        int N = (int) Math.round(Math.sqrt(Math.sqrt(numCells)));
+        if (N < 1 || N * N * N * N != numCells) throw new IllegalArgumentException(
+                numCells + " cells is not a valid board size");
+
+        return N;
+    }
+
+
+    private static void checkValues(int[] board) {
+
+        int nSq = sizeOf(board.length);
+        nSq *= nSq;
+
+        for (int value : board) {
+            if (value < 0 || value > nSq) throw new IllegalArgumentException("cell value out of range: " + value);
+        }
+
+    }
+
+
+    private static int valueOf(char c) {
+
+        if (c == '.') return 0;
+
+        int value = Character.digit(c, 36);
+        if (value < 0) throw new IllegalArgumentException("invalid cell '" + c + "'");
+
+        return value;
+    }
+
+}
@@ -0,0 +1,256 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+
+/************************************************************************************
+ * Streams an experiment's results to disk while it runs.
+ *
+ * Every generation's best fitness goes to a per-run file as soon as it is
+ * produced, through one reused buffer, so nothing is lost if the experiment
+ * dies & memory use does not grow with the number of generations. The average
+ * over all runs goes to the main file at the end.
+ *
+ * Files ending in ".bin" use a compact columnar binary format (big-endian):
+ *   per-run file  - int magic "SDKR", int version, then per run: int run,
+ *                   int count & count doubles, the best fitness of
+ *                   generations 1...count
+ *   averages file - int magic "SDKA", int version, int count & count doubles,
+ *                   the average best fitness of generations 1...count
+ * Any other name gets CSV with a header row.
+ ***********************************************************************************/
+public class ResultsWriter implements AutoCloseable {
+
+    private static final int RUNS_MAGIC = 0x53444b52;     // "SDKR"
+    private static final int AVERAGES_MAGIC = 0x53444b41; // "SDKA"
+    private static final int VERSION = 1;
+
+    private final Path averagesFile;
+    private final boolean binary;
+
+    private final FileChannel runs;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private final StringBuilder line = new StringBuilder();
+
+    // the run being written & where its binary block starts
+    private int run;
+    private long runStart = -1;
+    private int runLength;
+
+
+    /********************************************************************************
+     * Constructor. Starts new results for filename, replacing any old ones.
+     *******************************************************************************/
+    public ResultsWriter(String filename) throws IOException {
+
+        this.averagesFile = Paths.get(filename);
+        this.binary = filename.endsWith(".bin");
+        this.runs = FileChannel.open(runsFile(averagesFile), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+
+        if (binary) {
+            buffer.putInt(RUNS_MAGIC);
+            buffer.putInt(VERSION);
+        } else {
+            putAscii("run,generation,best fitness\n");
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Constructor. Reopens the results of an interrupted experiment in the middle
+     * of a run, dropping anything written after the position sync() returned.
+     *******************************************************************************/
+    public ResultsWriter(String filename, int run, long position, long runStart) throws IOException {
+
+        this.averagesFile = Paths.get(filename);
+        this.binary = filename.endsWith(".bin");
+        this.runs = FileChannel.open(runsFile(averagesFile), StandardOpenOption.WRITE);
+
+        if (runs.size() < position) throw new IOException(runsFile(averagesFile) + " is shorter than the checkpoint");
+
+        runs.truncate(position);
+        runs.position(position);
+
+        this.run = run;
+        this.runStart = runStart;
+        if (binary) this.runLength = (int) ((position - runStart - 8) / 8);
+
+    }
+
+
+    /********************************************************************************
+     * The per-run file for a results file: "results.csv" -> "results-runs.csv".
+     *******************************************************************************/
+    public static Path runsFile(Path averagesFile) {
+
+        String name = averagesFile.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String runsName = dot < 0 ? name + "-runs" : name.substring(0, dot) + "-runs" + name.substring(dot);
+
+        return averagesFile.resolveSibling(runsName);
+    }
+
+
+    /********************************************************************************
+     * Starts the results of a new run.
+     *******************************************************************************/
+    public void startRun(int run) throws IOException {
+
+        this.run = run;
+        this.runLength = 0;
+
+        if (binary) {
+            ensureSpace(8);
+            this.runStart = runs.position() + buffer.position();
+            buffer.putInt(run);
+            buffer.putInt(0); // count, filled in by endRun
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Adds the best fitness of the next generation of the current run.
+     *******************************************************************************/
+    public void writeGeneration(int generation, double bestFitness) throws IOException {
+
+        runLength++;
+
+        if (binary) {
+            ensureSpace(8);
+            buffer.putDouble(bestFitness);
+        } else {
+            line.setLength(0);
+            line.append(run).append(',').append(generation).append(',').append(bestFitness).append('\n');
+            putAscii(line);
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Finishes the current run, filling in its generation count.
+     *******************************************************************************/
+    public void endRun() throws IOException {
+
+        if (!binary) return;
+
+        flushBuffer();
+
+        ByteBuffer count = ByteBuffer.allocate(4).putInt(0, runLength);
+        while (count.hasRemaining()) {
+            runs.write(count, runStart + 4 + count.position());
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Writes out everything buffered & returns the per-run file's length, to be
+     * saved with a checkpoint together with getRunStart().
+     *******************************************************************************/
+    public long sync() throws IOException {
+        flushBuffer();
+        return runs.position();
+    }
+
+
+    /********************************************************************************
+     * Writes the average best fitness of generations 1...maxNumberGenerations - 1
+     * over all runs to the main file.
+     *******************************************************************************/
+    public void writeAverages(EvolutionStats stats) throws IOException {
+
+        flushBuffer();
+
+        int count = stats.getMaxNumberGenerations() - 1;
+
+        try (FileChannel averages = FileChannel.open(averagesFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            if (binary) {
+                buffer.putInt(AVERAGES_MAGIC);
+                buffer.putInt(VERSION);
+                buffer.putInt(count);
+            } else {
+                putAscii("epoch,avg best fitness\n");
+            }
+
+            for (int epoch = 1; epoch <= count; epoch++) {
+                double average = stats.getAverageBestFitness(epoch);
+                if (binary) {
+                    drainIfFull(averages, 8);
+                    buffer.putDouble(average);
+                } else {
+                    line.setLength(0);
+                    line.append(epoch).append(',').append(average).append('\n');
+                    drainIfFull(averages, line.length());
+                    for (int i = 0; i < line.length(); i++) {
+                        buffer.put((byte) line.charAt(i));
+                    }
+                }
+            }
+
+            drain(averages);
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Writes out anything buffered & closes the per-run file.
+     *******************************************************************************/
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            runs.close();
+        }
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public long getRunStart() {
+        return runStart;
+    }
+
+
+    /********************************************************************************
+     * Buffer helpers. Text is ASCII, so each char is one byte.
+     *******************************************************************************/
+    private void putAscii(CharSequence text) throws IOException {
+        ensureSpace(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    private void ensureSpace(int bytes) throws IOException {
+        drainIfFull(runs, bytes);
+    }
+
+    private void flushBuffer() throws IOException {
+        drain(runs);
+    }
+
+    private void drainIfFull(FileChannel channel, int bytes) throws IOException {
+        if (buffer.remaining() < bytes) drain(channel);
+    }
+
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+}
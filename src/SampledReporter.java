@@ -0,0 +1,25 @@
+/************************************************************************************
+ * Prints a summary of every Kth generation to the console.
+ ***********************************************************************************/
+public class SampledReporter implements GenerationReporter {
+
+    private final int interval;
+
+
+    /********************************************************************************
+     * Constructor. Reports generations that are a multiple of interval.
+     *******************************************************************************/
+    public SampledReporter(int interval) {
+
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1");
+
+        this.interval = interval;
+    }
+
+
+    @Override
+    public void report(int run, int generation, GeneticAlgorithm genAlg) {
+        if (generation % interval == 0) System.out.println(genAlg.summarize(run, generation));
+    }
+
+}
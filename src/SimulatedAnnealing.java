@@ -0,0 +1,71 @@
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * Simulated annealing on swaps within a unit.
+ *
+ * Each step proposes swapping two random cells of a random unit. A swap that
+ * does not raise the error is always taken; one that raises it by delta is
+ * taken with probability e^(-delta / T). T cools geometrically from
+ * startTemperature to endTemperature over the step budget, so each genome
+ * starts out exploring & ends up hill climbing. Stops early on a solution.
+ ***********************************************************************************/
+public class SimulatedAnnealing implements LocalSearch {
+
+    private final int steps;
+    private final double startTemperature;
+    private final double endTemperature;
+    private final double cooling; // T is multiplied by this after each step
+
+
+    /********************************************************************************
+     * Constructor. Cools from 1.0 to 0.05 over the given number of steps per
+     * genome.
+     *******************************************************************************/
+    public SimulatedAnnealing(int steps) {
+        this(steps, 1.0, 0.05);
+    }
+
+
+    public SimulatedAnnealing(int steps, double startTemperature, double endTemperature) {
+
+        if (steps < 1) throw new IllegalArgumentException("steps must be at least 1");
+        if (startTemperature <= 0 || endTemperature <= 0 || endTemperature > startTemperature) {
+            throw new IllegalArgumentException("temperatures must satisfy 0 < end <= start");
+        }
+
+        this.steps = steps;
+        this.startTemperature = startTemperature;
+        this.endTemperature = endTemperature;
+        this.cooling = Math.pow(endTemperature / startTemperature, 1.0 / steps);
+    }
+
+
+    @Override
+    public void improve(Genome g, int N, SplittableRandom r, int[] cells) {
+
+        double temperature = startTemperature;
+
+        for (int step = 0; step < steps && g.getError() > 0; step++, temperature *= cooling) {
+
+            int count = LocalSearch.randomUnit(g, N, r, cells);
+            if (count < 2) return;
+
+            int i = r.nextInt(count);
+            int j = r.nextInt(count - 1);
+            if (j >= i) j++;
+
+            int delta = g.swapDelta(cells[i], cells[j]);
+            if (delta <= 0 || r.nextDouble() < Math.exp(-delta / temperature)) g.swap(cells[i], cells[j]);
+        }
+
+    }
+
+
+    @Override
+    public String toString() {
+        if (startTemperature == 1.0 && endTemperature == 0.05) return "sa:" + steps;
+        return "sa:" + steps + ":" + startTemperature + ":" + endTemperature;
+    }
+
+}
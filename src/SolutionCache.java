@@ -0,0 +1,378 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/************************************************************************************
+ * A bounded, thread-safe map from canonical puzzles to their solutions, both
+ * one byte per cell (see CanonicalForm).
+ *
+ * Entries are kept in least recently used order & the cache holds at most
+ * maxBytes of them, counting each entry's key, value & ENTRY_OVERHEAD. A new
+ * entry that would push the cache over the limit is only admitted if it has
+ * been asked for more often than each entry it would evict (TinyLFU), so a
+ * burst of one-off puzzles cannot flush out the popular ones. Frequencies are
+ * kept approximately in a small count-min sketch that halves every counter
+ * once it has counted SAMPLE_FACTOR accesses per 9x9 entry the cache can hold,
+ * so old popularity fades.
+ *
+ * With a backing file, entries are also appended to a memory-mapped log of
+ * maxBytes, which a new cache on the same file replays, so the cache survives
+ * restarts. When the log fills up it is rewritten with just the live entries.
+ * A torn or corrupt tail is ignored on replay; it is only a cache.
+ ***********************************************************************************/
+public class SolutionCache implements AutoCloseable {
+
+    // rough heap cost of an entry beyond its two arrays: map node, key wrapper
+    // & array headers
+    public static final int ENTRY_OVERHEAD = 96;
+
+    private static final int SAMPLE_FACTOR = 10;
+
+    // log file header: magic, version & the end of the committed records
+    private static final int LOG_MAGIC = 0x53444b53; // "SDKS"
+    private static final int LOG_VERSION = 1;
+    private static final int LOG_HEADER = 12;
+
+    private final long maxBytes;
+    private long bytes;
+    private final LinkedHashMap<ByteBuffer, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    // count-min sketch of access frequencies, 4 rows of 4-bit counters
+    private final long[][] sketch;
+    private final int sketchMask;
+    private long sketchAccesses;
+    private final long sketchResetAt;
+
+    private final FileChannel logChannel;
+    private final MappedByteBuffer log;
+
+    // stats since the cache was created
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long rejections;
+
+
+    /********************************************************************************
+     * Constructor. An in-memory cache of at most maxBytes.
+     *******************************************************************************/
+    public SolutionCache(long maxBytes) throws IOException {
+        this(maxBytes, null);
+    }
+
+
+    /********************************************************************************
+     * Constructor. A cache of at most maxBytes, kept in & reloaded from a
+     * memory-mapped log file if logFile is not null.
+     *******************************************************************************/
+    public SolutionCache(long maxBytes, Path logFile) throws IOException {
+
+        if (maxBytes < 1) throw new IllegalArgumentException("maxBytes must be at least 1");
+        if (logFile != null && maxBytes > Integer.MAX_VALUE - LOG_HEADER) throw new IllegalArgumentException(
+                "a cache file holds at most 2GB");
+
+        this.maxBytes = maxBytes;
+
+        // about one counter per 64 bytes of cache, in a power of two of longs
+        // of 16 counters each
+        long counters = Math.max(64, Math.min(1L << 26, maxBytes / 64));
+        int words = Integer.highestOneBit((int) (counters / 16)) * 2;
+        this.sketch = new long[4][words];
+        this.sketchMask = words - 1;
+        this.sketchResetAt = SAMPLE_FACTOR * Math.max(1, maxBytes / (ENTRY_OVERHEAD + 2 * 81));
+
+        if (logFile == null) {
+            this.logChannel = null;
+            this.log = null;
+            return;
+        }
+
+        this.logChannel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.log = logChannel.map(FileChannel.MapMode.READ_WRITE, 0, LOG_HEADER + maxBytes);
+
+        replayLog();
+    }
+
+
+    /********************************************************************************
+     * The solution cached for a canonical puzzle, or null.
+     *******************************************************************************/
+    public synchronized byte[] get(byte[] key) {
+
+        recordAccess(key);
+
+        byte[] value = entries.get(ByteBuffer.wrap(key));
+        if (value == null) misses++;
+        else hits++;
+
+        return value;
+    }
+
+
+    /********************************************************************************
+     * Caches the solution of a canonical puzzle, if the admission policy lets it
+     * in. Returns whether it was cached.
+     *******************************************************************************/
+    public synchronized boolean put(byte[] key, byte[] value) {
+
+        ByteBuffer wrapped = ByteBuffer.wrap(key.clone());
+        if (entries.containsKey(wrapped)) return true;
+
+        long size = sizeOf(key, value);
+        if (size > maxBytes) {
+            rejections++;
+            return false;
+        }
+
+        // the least recently used entries that would have to go, all of which
+        // must be less popular than the newcomer
+        int frequency = frequency(key);
+        long freed = 0;
+        int numVictims = 0;
+        for (Map.Entry<ByteBuffer, byte[]> victim : entries.entrySet()) {
+            if (bytes - freed + size <= maxBytes) break;
+            if (frequency <= frequency(victim.getKey().array())) {
+                rejections++;
+                return false;
+            }
+            freed += sizeOf(victim.getKey().array(), victim.getValue());
+            numVictims++;
+        }
+
+        Iterator<Map.Entry<ByteBuffer, byte[]>> eldest = entries.entrySet().iterator();
+        for (int i = 0; i < numVictims; i++) {
+            eldest.next();
+            eldest.remove();
+        }
+        bytes -= freed;
+        evictions += numVictims;
+
+        entries.put(wrapped, value.clone());
+        bytes += size;
+
+        if (log != null) append(wrapped.array(), value);
+
+        return true;
+    }
+
+
+    private static long sizeOf(byte[] key, byte[] value) {
+        return key.length + value.length + ENTRY_OVERHEAD;
+    }
+
+
+    /********************************************************************************
+     * Counts an access in the sketch, halving every counter once enough have
+     * been counted.
+     *******************************************************************************/
+    private void recordAccess(byte[] key) {
+
+        long hash = hashOf(key);
+        for (int row = 0; row < sketch.length; row++) {
+            int index = indexOf(hash, row);
+            int shift = counterShift(hash, row);
+            if (((sketch[row][index] >>> shift) & 0xF) < 0xF) sketch[row][index] += 1L << shift;
+        }
+
+        if (++sketchAccesses >= sketchResetAt) {
+            for (long[] row : sketch) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (row[i] >>> 1) & 0x7777777777777777L;
+                }
+            }
+            sketchAccesses /= 2;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Estimated accesses of a key: the smallest of its counters.
+     *******************************************************************************/
+    private int frequency(byte[] key) {
+
+        long hash = hashOf(key);
+        int frequency = 0xF;
+        for (int row = 0; row < sketch.length; row++) {
+            int counter = (int) (sketch[row][indexOf(hash, row)] >>> counterShift(hash, row)) & 0xF;
+            frequency = Math.min(frequency, counter);
+        }
+
+        return frequency;
+    }
+
+
+    private static long hashOf(byte[] key) {
+
+        long hash = 0x9e3779b97f4a7c15L;
+        for (byte b : key) {
+            hash = (hash ^ b) * 0xbf58476d1ce4e5b9L;
+        }
+
+        return hash ^ (hash >>> 31);
+    }
+
+
+    // each row rehashes the key hash to pick its word & the counter in it
+    private int indexOf(long hash, int row) {
+        return (int) (rowHash(hash, row) >>> 40) & sketchMask;
+    }
+
+    private static int counterShift(long hash, int row) {
+        return (int) ((rowHash(hash, row) >>> 36) & 0xF) << 2;
+    }
+
+    private static long rowHash(long hash, int row) {
+        return (hash + row) * 0x9e3779b97f4a7c15L;
+    }
+
+
+    /********************************************************************************
+     * Appends an entry to the log: key length, value length, key & value.
+     * Rewrites the log from the live entries first if it is full.
+     *******************************************************************************/
+    private void append(byte[] key, byte[] value) {
+
+        int end = log.getInt(8);
+        int recordSize = 8 + key.length + value.length;
+
+        if (end + recordSize > log.capacity()) {
+            end = LOG_HEADER;
+            log.putInt(8, end);
+            for (Map.Entry<ByteBuffer, byte[]> entry : entries.entrySet()) {
+                byte[] k = entry.getKey().array();
+                if (k != key) end = writeRecord(end, k, entry.getValue());
+            }
+            log.putInt(8, end);
+        }
+
+        log.putInt(8, writeRecord(end, key, value));
+
+    }
+
+
+    private int writeRecord(int offset, byte[] key, byte[] value) {
+
+        log.putInt(offset, key.length);
+        log.putInt(offset + 4, value.length);
+        log.put(offset + 8, key);
+        log.put(offset + 8 + key.length, value);
+
+        return offset + 8 + key.length + value.length;
+    }
+
+
+    /********************************************************************************
+     * Loads the entries of an existing log, oldest first, or starts a new log.
+     *******************************************************************************/
+    private void replayLog() {
+
+        if (log.getInt(0) != LOG_MAGIC || log.getInt(4) != LOG_VERSION) {
+            log.putInt(0, LOG_MAGIC);
+            log.putInt(4, LOG_VERSION);
+            log.putInt(8, LOG_HEADER);
+            return;
+        }
+
+        int end = log.getInt(8);
+        if (end < LOG_HEADER || end > log.capacity()) end = LOG_HEADER;
+
+        int offset = LOG_HEADER;
+        while (offset + 8 <= end) {
+
+            int keyLength = log.getInt(offset);
+            int valueLength = log.getInt(offset + 4);
+            if (keyLength < 1 || keyLength != valueLength || offset + 8 + 2L * keyLength > end) break;
+
+            byte[] key = new byte[keyLength];
+            byte[] value = new byte[valueLength];
+            log.get(offset + 8, key);
+            log.get(offset + 8 + keyLength, value);
+            offset += 8 + keyLength + valueLength;
+
+            ByteBuffer wrapped = ByteBuffer.wrap(key);
+            long size = sizeOf(key, value);
+            if (entries.containsKey(wrapped) || bytes + size > maxBytes) continue;
+            entries.put(wrapped, value);
+            bytes += size;
+        }
+
+        // drop anything past the last good record
+        log.putInt(8, offset);
+
+    }
+
+
+    /********************************************************************************
+     * Flushes the log file, if any, to disk & closes it.
+     *******************************************************************************/
+    @Override
+    public synchronized void close() throws IOException {
+
+        if (log == null) return;
+
+        log.force();
+        logChannel.close();
+
+    }
+
+
+    /********************************************************************************
+     * Hits, misses & size as space separated key=value pairs.
+     *******************************************************************************/
+    public synchronized String statsLine() {
+
+        long lookups = hits + misses;
+
+        return "cache-hits=" + hits
+                + " cache-misses=" + misses
+                + " cache-hit-rate=" + (lookups == 0 ? 0 : (double) hits / lookups)
+                + " cache-entries=" + entries.size()
+                + " cache-bytes=" + bytes
+                + " cache-evictions=" + evictions
+                + " cache-rejections=" + rejections;
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    // entries the admission policy or the size limit kept out
+    public synchronized long getRejections() {
+        return rejections;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    // counted as in the class comment
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+}
@@ -0,0 +1,78 @@
+import org.junit.Test;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+
+public class SolutionCacheTest {
+
+    private static final String PUZZLE =
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    @Test
+    public void testSymmetricCopyHits() throws Exception {
+
+        int[] puzzle = PuzzleFormat.parse(PUZZLE);
+
+        // transpose, swap the first two bands & relabel every digit v as 10 - v
+        int[] copy = new int[81];
+        for (int row = 0; row < 9; row++) {
+            for (int col = 0; col < 9; col++) {
+                int value = puzzle[col * 9 + row];
+                int copyRow = row < 3 ? row + 3 : row < 6 ? row - 3 : row;
+                copy[copyRow * 9 + col] = value == 0 ? 0 : 10 - value;
+            }
+        }
+
+        assertArrayEquals(CanonicalForm.of(3, puzzle).getCells(), CanonicalForm.of(3, copy).getCells());
+
+        SolutionCache cache = new SolutionCache(1 << 20);
+        CachingSolver solver = new CachingSolver(new DancingLinksSolver(), cache);
+        solver.solve(3, puzzle);
+        int[] board = solver.solve(3, copy);
+
+        assertEquals(1, cache.getHits());
+        assertArrayEquals(new DancingLinksSolver().solve(3, copy), board);
+
+    }
+
+    @Test
+    public void testKeepsPopularEntriesWithinLimit() throws Exception {
+
+        long entrySize = 2 * 81 + SolutionCache.ENTRY_OVERHEAD;
+        SolutionCache cache = new SolutionCache(4 * entrySize);
+
+        byte[] value = new byte[81];
+        Set<Integer> popular = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            popular.add(i);
+            for (int access = 0; access < 3; access++) {
+                cache.get(key(i));
+            }
+            assertTrue(cache.put(key(i), value));
+        }
+
+        // one-off puzzles should not displace entries asked for more often
+        for (int i = 4; i < 24; i++) {
+            cache.get(key(i));
+            assertFalse(cache.put(key(i), value));
+        }
+
+        for (int i : popular) {
+            assertTrue(cache.get(key(i)) != null);
+        }
+        assertEquals(4 * entrySize, cache.getBytes());
+
+    }
+
+    private static byte[] key(int i) {
+        byte[] key = new byte[81];
+        key[0] = (byte) i;
+        key[1] = (byte) (i >> 8);
+        return key;
+    }
+
+}
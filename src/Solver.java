@@ -0,0 +1,41 @@
+/************************************************************************************
+ * An engine that fills in a sudoku board with N^2 columns and rows.
+ *
+ * Boards are row-major int arrays of N^4 cells, offset = row * N^2 + col, holding
+ * values 1...N^2. In a puzzle, empty cells hold 0.
+ *
+ * An engine may hold resources, such as worker threads, from one puzzle to the
+ * next, so whoever creates one closes it once done with every puzzle.
+ ***********************************************************************************/
+public interface Solver extends AutoCloseable {
+
+    /********************************************************************************
+     * Solves a puzzle.
+     *
+     * @return the completed board, or null if no solution was found
+     *******************************************************************************/
+    int[] solve(int N, int[] puzzle) throws Exception;
+
+
+    /********************************************************************************
+     * Solves a puzzle within a budget: at most maxGenerations generations for
+     * engines that have them, giving up once timeLimit nanoseconds have passed
+     * (Long.MAX_VALUE for no limit). Engines that can stop early also give up
+     * when the calling thread is interrupted, leaving its interrupt status set;
+     * those that cannot ignore the budget.
+     *
+     * @return the completed board, or null if none was found within the budget
+     *******************************************************************************/
+    default int[] solve(int N, int[] puzzle, int maxGenerations, long timeLimit) throws Exception {
+        return solve(N, puzzle);
+    }
+
+
+    /********************************************************************************
+     * Releases what the engine holds between puzzles. Does nothing by default.
+     *******************************************************************************/
+    @Override
+    default void close() {
+    }
+
+}
@@ -0,0 +1,569 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+
+/************************************************************************************
+ * Every tunable parameter of a solver run, with the defaults the solver used
+ * to hard-code.
+ *
+ * Values can be set from a properties file & overridden on the command line
+ * as --key=value. validate() checks them all at once before anything runs &
+ * lists every problem it finds. The keys are:
+ *
+ *   n               board order, 2...15 (boards are n^2 x n^2)
+ *   generations     generation limit per run
+ *   runs            runs per experiment
+ *   population      population size
+ *   tournament      starting tournament size, 2...population
+ *   elite-fraction  fraction of the population kept as elites, 0...0.5
+ *                   (at least 1 genome)
+ *   mutation-rate   starting mutation rate in percent
+ *   crossover       crossover operator: unit, uniform, row-band,
+ *                   column-stack or fitness, see Crossover
+ *   policy          operator control policy: adaptive, stagnation or fixed
+ *   local-search    "off", "sa:K" or "mc:K", see LocalSearch.forMode
+ *   threads         worker threads
+ *   seed            experiment seed, random if not set
+ *   engine          batch engine: exact, dlx, genetic or memetic
+ *   results         results file of an experiment
+ *   report          generation report: "off", every Kth or a file name
+ *   report-interval generations between the records of a file report
+ *   checkpoint      checkpoint file, none if not set
+ *   port            port the server listens on, 0 for any free port
+ *   time-limit      server time budget per puzzle in ms, 0 for none
+ *   batch           most puzzles a server worker takes at once
+ *   cache           solution cache size in bytes for batch & server
+ *                   engines, 0 for none, see SolutionCache
+ *   cache-file      file the solution cache is kept in, none if not set
+ *   metrics         hot path metrics: "off", "jmx" to collect them & serve
+ *                   them over JMX, or a number K to also print them to
+ *                   stderr every K seconds, see SolverMetrics
+ ***********************************************************************************/
+public class SolverConfig {
+
+    public static final List<String> KEYS = Arrays.asList("n", "generations", "runs", "population", "tournament",
+            "elite-fraction", "mutation-rate", "crossover", "policy", "local-search", "threads", "seed", "engine",
+            "results", "report", "report-interval", "checkpoint", "port", "time-limit", "batch", "cache",
+            "cache-file", "metrics");
+
+    private static final List<String> POLICIES = Arrays.asList("adaptive", "stagnation", "fixed");
+    private static final List<String> ENGINES = Arrays.asList("genetic", "memetic", "exact", "dlx");
+
+    private int N = 3;
+    private int generations = 10000;
+    private int runs = 20;
+    private int popSize = 10000;
+    private int tournamentSize = 5;
+    private double eliteFraction = 0.01;
+    private int mutationRate = 80;
+    private String crossover = "unit";
+    private String policy = "adaptive";
+    private String localSearch = "off";
+    private int threads = 1;
+    private Long seed;
+    private String engine = "exact";
+    private String results = "results.csv";
+    private String report = "1";
+    private int reportInterval = 1;
+    private String checkpoint;
+    private int port = 7357;
+    private int timeLimit;
+    private int batch = 16;
+    private long cacheBytes;
+    private String cacheFile;
+    private String metrics = "off";
+
+    // the solution cache shared by every engine created from this config
+    private SolutionCache cache;
+
+    // values that could not be parsed, reported by validate()
+    private final List<String> errors = new ArrayList<>();
+
+    // keys given a value, as opposed to left at their defaults
+    private final Set<String> explicit = new HashSet<>();
+
+
+    /********************************************************************************
+     * Sets the parameter named key from its text. A value that does not parse is
+     * recorded & reported by validate().
+     *******************************************************************************/
+    public void set(String key, String value) {
+
+        try {
+            switch (key) {
+                case "n": N = Integer.parseInt(value); break;
+                case "generations": generations = Integer.parseInt(value); break;
+                case "runs": runs = Integer.parseInt(value); break;
+                case "population": popSize = Integer.parseInt(value); break;
+                case "tournament": tournamentSize = Integer.parseInt(value); break;
+                case "elite-fraction": eliteFraction = Double.parseDouble(value); break;
+                case "mutation-rate": mutationRate = Integer.parseInt(value); break;
+                case "crossover": crossover = value; break;
+                case "policy": policy = value; break;
+                case "local-search": localSearch = value; break;
+                case "threads": threads = Integer.parseInt(value); break;
+                case "seed": seed = value.isEmpty() ? null : Long.parseLong(value); break;
+                case "engine": engine = value; break;
+                case "results": results = value; break;
+                case "report": report = value; break;
+                case "report-interval": reportInterval = Integer.parseInt(value); break;
+                case "checkpoint": checkpoint = value.isEmpty() || value.equals("-") ? null : value; break;
+                case "port": port = Integer.parseInt(value); break;
+                case "time-limit": timeLimit = Integer.parseInt(value); break;
+                case "batch": batch = Integer.parseInt(value); break;
+                case "cache": cacheBytes = Long.parseLong(value); break;
+                case "cache-file": cacheFile = value.isEmpty() || value.equals("-") ? null : value; break;
+                case "metrics": metrics = value; break;
+                default: errors.add("unknown parameter " + key); return;
+            }
+            explicit.add(key);
+        } catch (NumberFormatException e) {
+            errors.add(key + ": not a number: " + value);
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Sets every parameter in a properties file.
+     *******************************************************************************/
+    public void load(Path file) throws IOException {
+        try (Reader in = Files.newBufferedReader(file)) {
+            load(in);
+        }
+    }
+
+    private void load(Reader in) throws IOException {
+
+        Properties properties = new Properties();
+        properties.load(in);
+
+        for (String key : properties.stringPropertyNames()) {
+            set(key, properties.getProperty(key).trim());
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Applies the --key=value options of a command line, after loading the file
+     * of any --config=file, & returns the other arguments in order.
+     *******************************************************************************/
+    public List<String> parseArgs(String[] args) throws IOException {
+
+        List<String> positional = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.startsWith("--config=")) load(Paths.get(arg.substring("--config=".length())));
+        }
+
+        for (String arg : args) {
+            if (!arg.startsWith("--")) {
+                positional.add(arg);
+            } else if (!arg.startsWith("--config=")) {
+                int eq = arg.indexOf('=');
+                if (eq < 0) errors.add("expected --key=value: " + arg);
+                else set(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+
+        return positional;
+    }
+
+
+    /********************************************************************************
+     * Checks every parameter & throws an IllegalArgumentException listing all
+     * the problems, if there are any. Draws a random seed if none was set, so
+     * the run can be replayed.
+     *******************************************************************************/
+    public void validate() {
+
+        List<String> problems = new ArrayList<>(errors);
+
+        if (N < 2 || N > 15) problems.add("n must be between 2 and 15");
+        if (generations < 2) problems.add("generations must be at least 2");
+        if (runs < 1) problems.add("runs must be at least 1");
+        if (popSize < 2) problems.add("population must be at least 2");
+        if (tournamentSize < 2 || tournamentSize > popSize) problems.add(
+                "tournament must be between 2 and population");
+        if (!(eliteFraction >= 0 && eliteFraction <= 0.5)) problems.add("elite-fraction must be between 0 and 0.5");
+        if (mutationRate < 0 || mutationRate > 100) problems.add("mutation-rate must be between 0 and 100");
+        try {
+            Crossover.forMode(crossover);
+        } catch (IllegalArgumentException e) {
+            problems.add("crossover: " + e.getMessage());
+        }
+        if (!POLICIES.contains(policy)) problems.add("policy must be one of " + POLICIES);
+        if (threads < 1) problems.add("threads must be at least 1");
+        if (!ENGINES.contains(engine)) problems.add("engine must be one of " + ENGINES);
+        if (results.isEmpty()) problems.add("results must name a file");
+        if (report.isEmpty()) {
+            problems.add("report must be off, an interval or a file name");
+        } else if (report.chars().allMatch(Character::isDigit)
+                && (report.length() > 9 || Integer.parseInt(report) < 1)) {
+            problems.add("report interval must be between 1 and 999999999");
+        }
+        if (reportInterval < 1) problems.add("report-interval must be at least 1");
+        if (port < 0 || port > 65535) problems.add("port must be between 0 and 65535");
+        if (timeLimit < 0) problems.add("time-limit must be at least 0");
+        if (batch < 1) problems.add("batch must be at least 1");
+        if (cacheBytes < 0) problems.add("cache must be at least 0");
+        if (cacheFile != null && cacheBytes == 0) problems.add("cache-file needs a cache size");
+        if (cacheFile != null && cacheBytes > Integer.MAX_VALUE - 12) problems.add(
+                "cache must be under 2GB with a cache-file");
+        if (!metrics.equals("off") && !metrics.equals("jmx") && !metrics.matches("[1-9]\\d{0,5}")) problems.add(
+                "metrics must be off, jmx or a number of seconds");
+
+        try {
+            LocalSearch.forMode(localSearch);
+        } catch (IllegalArgumentException e) {
+            problems.add("local-search: " + e.getMessage());
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IllegalArgumentException("invalid configuration:\n  " + String.join("\n  ", problems));
+        }
+
+        if (seed == null) seed = new SplittableRandom().nextLong();
+
+    }
+
+
+    /********************************************************************************
+     * A new GeneticAlgorithm with these settings for a blank board, seeded with
+     * the given run seed.
+     *******************************************************************************/
+    public GeneticAlgorithm createAlgorithm(long runSeed) {
+        return createAlgorithm(N, null, runSeed);
+    }
+
+
+    /********************************************************************************
+     * A new GeneticAlgorithm with these settings for a puzzle of order N (null
+     * for a blank board), seeded with the given run seed.
+     *******************************************************************************/
+    public GeneticAlgorithm createAlgorithm(int N, int[] puzzle, long runSeed) {
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(N, puzzle, popSize, tournamentSize, mutationRate, threads,
+                runSeed);
+        configure(genAlg);
+        return genAlg;
+    }
+
+
+    /********************************************************************************
+     * Puts these operator settings, a fresh policy, the crossover & the local
+     * search on an algorithm, as at the start of a run. Used after
+     * GeneticAlgorithm.reset to start a new run on warm storage.
+     *******************************************************************************/
+    public void configure(GeneticAlgorithm genAlg) {
+
+        OperatorControls controls = genAlg.getControls();
+        controls.setMutationRate(mutationRate);
+        controls.setMutationStrength(1);
+        controls.setTournamentSize(tournamentSize);
+        controls.setEliteCount(getEliteCount());
+
+        genAlg.setPolicy(createPolicy());
+        genAlg.setCrossover(Crossover.forMode(crossover));
+        genAlg.setLocalSearch(LocalSearch.forMode(localSearch));
+
+    }
+
+
+    /********************************************************************************
+     * A fresh instance of the configured control policy.
+     *******************************************************************************/
+    public ControlPolicy createPolicy() {
+
+        switch (policy) {
+            case "stagnation":
+                return new StagnationPolicy();
+            case "fixed":
+                return ControlPolicy.FIXED;
+            default:
+                return new AdaptivePolicy();
+        }
+
+    }
+
+
+    /********************************************************************************
+     * The configured batch engine. Genetic engines use these GA settings & start
+     * every puzzle from the seed; "memetic" runs min-conflicts on every child
+     * unless another local search is set. With a cache size set, the engine
+     * answers from the solution cache shared by every engine of this config.
+     *******************************************************************************/
+    public Solver createEngine() {
+
+        Solver solver;
+
+        switch (engine) {
+            case "memetic":
+                SolverConfig memetic = copy();
+                if (localSearch.equals("off")) memetic.localSearch = "mc:20";
+                solver = new GeneticSolver(memetic);
+                break;
+            case "dlx":
+                solver = new DancingLinksSolver();
+                break;
+            case "genetic":
+                solver = new GeneticSolver(copy());
+                break;
+            default:
+                solver = new ExactSolver();
+        }
+
+        return cacheBytes == 0 ? solver : new CachingSolver(solver, getCache());
+    }
+
+
+    /********************************************************************************
+     * The shared solution cache, opened on first use, or null if no cache size
+     * is set.
+     *******************************************************************************/
+    public synchronized SolutionCache getCache() {
+
+        if (cacheBytes == 0) return null;
+
+        if (cache == null) {
+            try {
+                cache = new SolutionCache(cacheBytes, cacheFile == null ? null : Paths.get(cacheFile));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return cache;
+    }
+
+
+    /********************************************************************************
+     * Closes the shared solution cache, if it was opened, saving its file.
+     *******************************************************************************/
+    public synchronized void closeCache() throws IOException {
+
+        if (cache != null) cache.close();
+        cache = null;
+
+    }
+
+
+    /********************************************************************************
+     * A copy of these settings.
+     *******************************************************************************/
+    public SolverConfig copy() {
+
+        SolverConfig copy = new SolverConfig();
+        try {
+            copy.load(new StringReader(toString()));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        copy.explicit.retainAll(explicit);
+        return copy;
+    }
+
+
+    /********************************************************************************
+     * Writes the settings, for a checkpoint.
+     *******************************************************************************/
+    public void write(DataOutput out) throws IOException {
+        out.writeUTF(toString());
+    }
+
+
+    /********************************************************************************
+     * Reads settings saved by write.
+     *******************************************************************************/
+    public static SolverConfig read(DataInput in) throws IOException {
+
+        SolverConfig config = new SolverConfig();
+        config.load(new StringReader(in.readUTF()));
+
+        try {
+            config.validate();
+        } catch (IllegalArgumentException e) {
+            throw new IOException("corrupt configuration: " + e.getMessage());
+        }
+
+        return config;
+    }
+
+
+    /********************************************************************************
+     * The settings in properties file form, one key=value per line in KEYS
+     * order. Unset seed & checkpoint are left empty.
+     *******************************************************************************/
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+
+        for (String key : KEYS) {
+            sb.append(key).append('=');
+
+            // escape what Properties.load would otherwise read differently
+            String value = get(key);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                boolean special = c == '\\' || c == '=' || c == ':' || c == '#' || c == '!';
+                if (special || (c == ' ' && i == 0)) sb.append('\\');
+                sb.append(c);
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+
+
+    /********************************************************************************
+     * The text of the parameter named key.
+     *******************************************************************************/
+    public String get(String key) {
+
+        switch (key) {
+            case "n": return Integer.toString(N);
+            case "generations": return Integer.toString(generations);
+            case "runs": return Integer.toString(runs);
+            case "population": return Integer.toString(popSize);
+            case "tournament": return Integer.toString(tournamentSize);
+            case "elite-fraction": return Double.toString(eliteFraction);
+            case "mutation-rate": return Integer.toString(mutationRate);
+            case "crossover": return crossover;
+            case "policy": return policy;
+            case "local-search": return localSearch;
+            case "threads": return Integer.toString(threads);
+            case "seed": return seed == null ? "" : Long.toString(seed);
+            case "engine": return engine;
+            case "results": return results;
+            case "report": return report;
+            case "report-interval": return Integer.toString(reportInterval);
+            case "checkpoint": return checkpoint == null ? "" : checkpoint;
+            case "port": return Integer.toString(port);
+            case "time-limit": return Integer.toString(timeLimit);
+            case "batch": return Integer.toString(batch);
+            case "cache": return Long.toString(cacheBytes);
+            case "cache-file": return cacheFile == null ? "" : cacheFile;
+            case "metrics": return metrics;
+            default: throw new IllegalArgumentException("unknown parameter " + key);
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Whether the parameter named key was given a value, from a file, the
+     * command line or set(), rather than left at its default.
+     *******************************************************************************/
+    public boolean isSet(String key) {
+        return explicit.contains(key);
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+    public int getN() {
+        return N;
+    }
+
+    public int getGenerations() {
+        return generations;
+    }
+
+    public int getRuns() {
+        return runs;
+    }
+
+    public int getPopSize() {
+        return popSize;
+    }
+
+    public int getTournamentSize() {
+        return tournamentSize;
+    }
+
+    // at least one elite, & never more than half the population
+    public int getEliteCount() {
+        return Math.max(1, Math.min(popSize / 2, (int) Math.round(popSize * eliteFraction)));
+    }
+
+    public int getMutationRate() {
+        return mutationRate;
+    }
+
+    public Crossover getCrossover() {
+        return Crossover.forMode(crossover);
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    public LocalSearch getLocalSearch() {
+        return LocalSearch.forMode(localSearch);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    // null until validate() has run, if no seed was set
+    public Long getSeed() {
+        return seed;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public String getResults() {
+        return results;
+    }
+
+    public String getReport() {
+        return report;
+    }
+
+    public int getReportInterval() {
+        return reportInterval;
+    }
+
+    public String getCheckpoint() {
+        return checkpoint;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    // in ms, 0 for no limit
+    public int getTimeLimit() {
+        return timeLimit;
+    }
+
+    public int getBatch() {
+        return batch;
+    }
+
+    public String getMetrics() {
+        return metrics;
+    }
+
+}
@@ -0,0 +1,70 @@
+import org.junit.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.List;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+public class SolverConfigTest {
+
+    @Test
+    public void testValidateListsEveryProblem() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        List<String> positional = config.parseArgs(new String[] {"evolve", "--population=1", "--threads=x",
+                "--crossover=none", "--colour=blue"});
+
+        assertEquals(1, positional.size());
+
+        try {
+            config.validate();
+            fail("invalid configuration accepted");
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            assertTrue(message.contains("population"));
+            assertTrue(message.contains("threads"));
+            assertTrue(message.contains("crossover"));
+            assertTrue(message.contains("colour"));
+        }
+
+    }
+
+    @Test
+    public void testIsSetOnlyForGivenKeys() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"experiment", "--threads=2", "--colour=blue"});
+
+        assertTrue(config.isSet("threads"));
+        assertFalse(config.isSet("population"));
+        assertFalse(config.isSet("colour"));
+        assertTrue(config.copy().isSet("threads"));
+        assertFalse(config.copy().isSet("population"));
+
+    }
+
+    @Test
+    public void testWriteReadRoundTrip() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"--n=4", "--population=500", "--elite-fraction=0.05",
+                "--local-search=sa:50:2.0:0.1", "--results=C:\\results #1.csv", "--seed=-3"});
+        config.validate();
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        config.write(new DataOutputStream(bytes));
+        SolverConfig read = SolverConfig.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(config.toString(), read.toString());
+        assertEquals(25, read.getEliteCount());
+        assertEquals("C:\\results #1.csv", read.getResults());
+        assertEquals(-3L, (long) read.getSeed());
+
+    }
+
+}
@@ -0,0 +1,371 @@
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+
+/************************************************************************************
+ * Process-wide counters & timers for the genetic algorithm's hot path.
+ *
+ * GeneticAlgorithm.epoch() times each of its phases & the whole epoch, & Genome
+ * counts the boards it scores & the genomes it allocates. Everything is off by
+ * default: each hook is then one read of a volatile flag, so the only cost is
+ * a branch per phase, per scoring & per allocation. When on, phases cost two
+ * System.nanoTime() calls each & the counters are LongAdders, so worker
+ * threads do not contend on them.
+ *
+ * Read the totals through snapshot(), every() for a snapshot of each interval,
+ * or JMX once register() has been called.
+ ***********************************************************************************/
+public class SolverMetrics implements SolverMetricsMBean {
+
+    /********************************************************************************
+     * The phases of an epoch, in the order they run.
+     *******************************************************************************/
+    public enum Phase {
+        RECOMBINATION, // tournaments, crossover & local search for the children
+        SELECTION,     // tournaments picking the survivors
+        ELITES,        // quickselect of the elites
+        MUTATION,
+        DEDUPLICATION, // replaceDuplicates
+        FITTEST,       // finding the fittest genome & sanity checks
+        POLICY         // the control policy adapting the operators
+    }
+
+    public static final String OBJECT_NAME = "sudoku:type=SolverMetrics";
+
+    private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+    private static volatile boolean on;
+
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder epochs = new LongAdder();
+    private final LongAdder fullEvaluations = new LongAdder();        // boards scored from scratch
+    private final LongAdder incrementalEvaluations = new LongAdder(); // children rescored by changed lines
+    private final LongAdder reusedScores = new LongAdder();           // children that copied a known score
+    private final LongAdder genomesAllocated = new LongAdder();
+    private final LatencyHistogram epochLatency = new LatencyHistogram();
+
+
+    private SolverMetrics() {
+        for (int p = 0; p < phaseNanos.length; p++) {
+            phaseNanos[p] = new LongAdder();
+        }
+    }
+
+
+    /********************************************************************************
+     * The one instance, which is also the MBean.
+     *******************************************************************************/
+    public static SolverMetrics get() {
+        return INSTANCE;
+    }
+
+
+    /********************************************************************************
+     * Registers the MBean with the platform MBean server, once.
+     *******************************************************************************/
+    public static synchronized void register() throws JMException {
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (!server.isRegistered(name)) server.registerMBean(INSTANCE, name);
+
+    }
+
+
+    /********************************************************************************
+     * Hooks for GeneticAlgorithm & Genome. startTiming() returns the time for
+     * the first lap, or 0 when off; lap() adds the time since start to a phase &
+     * returns the time the next phase starts at.
+     *******************************************************************************/
+    static long startTiming() {
+        return on ? System.nanoTime() : 0;
+    }
+
+    static long lap(Phase phase, long start) {
+
+        if (start == 0 || !on) return 0;
+
+        long now = System.nanoTime();
+        INSTANCE.phaseNanos[phase.ordinal()].add(now - start);
+        return now;
+    }
+
+    static void endEpoch(long start) {
+
+        if (start == 0 || !on) return;
+
+        INSTANCE.epochs.increment();
+        INSTANCE.epochLatency.record(System.nanoTime() - start);
+    }
+
+    static void countFullEvaluation() {
+        if (on) INSTANCE.fullEvaluations.increment();
+    }
+
+    static void countIncrementalEvaluation() {
+        if (on) INSTANCE.incrementalEvaluations.increment();
+    }
+
+    static void countReusedScore() {
+        if (on) INSTANCE.reusedScores.increment();
+    }
+
+    static void countGenomeAllocated() {
+        if (on) INSTANCE.genomesAllocated.increment();
+    }
+
+
+    /********************************************************************************
+     * The totals so far.
+     *******************************************************************************/
+    public Snapshot snapshot() {
+
+        long[] nanos = new long[phaseNanos.length];
+        for (int p = 0; p < nanos.length; p++) {
+            nanos[p] = phaseNanos[p].sum();
+        }
+
+        return new Snapshot(System.nanoTime(), epochs.sum(), fullEvaluations.sum(), incrementalEvaluations.sum(),
+                reusedScores.sum(), genomesAllocated.sum(), nanos, epochLatency.percentile(50),
+                epochLatency.percentile(99), epochLatency.getMax());
+    }
+
+
+    /********************************************************************************
+     * Passes consumer what changed in each period, from a daemon thread, until
+     * the returned handle is closed.
+     *******************************************************************************/
+    public AutoCloseable every(long period, TimeUnit unit, Consumer<Snapshot> consumer) {
+
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "solver-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Snapshot[] last = {snapshot()};
+        timer.scheduleAtFixedRate(() -> {
+            Snapshot current = snapshot();
+            consumer.accept(current.since(last[0]));
+            last[0] = current;
+        }, period, period, unit);
+
+        return timer::shutdown;
+    }
+
+
+    /********************************************************************************
+     * Counts, times & epoch latency at one moment. A snapshot from since() holds
+     * the counts & times of an interval but still the latency percentiles of
+     * every epoch so far.
+     *******************************************************************************/
+    public static class Snapshot {
+
+        private final long time;
+        private final long epochs;
+        private final long fullEvaluations;
+        private final long incrementalEvaluations;
+        private final long reusedScores;
+        private final long genomesAllocated;
+        private final long[] phaseNanos;
+        private final long epochP50;
+        private final long epochP99;
+        private final long epochMax;
+
+        private Snapshot(long time, long epochs, long fullEvaluations, long incrementalEvaluations,
+                         long reusedScores, long genomesAllocated, long[] phaseNanos, long epochP50, long epochP99,
+                         long epochMax) {
+            this.time = time;
+            this.epochs = epochs;
+            this.fullEvaluations = fullEvaluations;
+            this.incrementalEvaluations = incrementalEvaluations;
+            this.reusedScores = reusedScores;
+            this.genomesAllocated = genomesAllocated;
+            this.phaseNanos = phaseNanos;
+            this.epochP50 = epochP50;
+            this.epochP99 = epochP99;
+            this.epochMax = epochMax;
+        }
+
+
+        /****************************************************************************
+         * What changed between an earlier snapshot & this one.
+         ***************************************************************************/
+        public Snapshot since(Snapshot earlier) {
+
+            long[] nanos = new long[phaseNanos.length];
+            for (int p = 0; p < nanos.length; p++) {
+                nanos[p] = phaseNanos[p] - earlier.phaseNanos[p];
+            }
+
+            return new Snapshot(time - earlier.time, epochs - earlier.epochs,
+                    fullEvaluations - earlier.fullEvaluations, incrementalEvaluations - earlier.incrementalEvaluations,
+                    reusedScores - earlier.reusedScores, genomesAllocated - earlier.genomesAllocated, nanos,
+                    epochP50, epochP99, epochMax);
+        }
+
+
+        /****************************************************************************
+         * Space separated key=value pairs, phase times in ns.
+         ***************************************************************************/
+        @Override
+        public String toString() {
+
+            StringBuilder sb = new StringBuilder();
+            sb.append("epochs=").append(epochs)
+                    .append(" full-evals=").append(fullEvaluations)
+                    .append(" incremental-evals=").append(incrementalEvaluations)
+                    .append(" reused-scores=").append(reusedScores)
+                    .append(" genomes-allocated=").append(genomesAllocated);
+            for (Phase phase : Phase.values()) {
+                sb.append(' ').append(phase.name().toLowerCase()).append("-ns=").append(phaseNanos[phase.ordinal()]);
+            }
+            sb.append(" epoch-p50=").append(epochP50)
+                    .append(" epoch-p99=").append(epochP99)
+                    .append(" epoch-max=").append(epochMax);
+
+            return sb.toString();
+        }
+
+
+        /****************************************************************************
+         * Getters
+         ***************************************************************************/
+
+        // System.nanoTime() when taken, or the length of the interval for since()
+        public long getTime() {
+            return time;
+        }
+
+        public long getEpochs() {
+            return epochs;
+        }
+
+        public long getFullEvaluations() {
+            return fullEvaluations;
+        }
+
+        public long getIncrementalEvaluations() {
+            return incrementalEvaluations;
+        }
+
+        public long getReusedScores() {
+            return reusedScores;
+        }
+
+        public long getGenomesAllocated() {
+            return genomesAllocated;
+        }
+
+        public long getPhaseNanos(Phase phase) {
+            return phaseNanos[phase.ordinal()];
+        }
+
+        public long getEpochP50() {
+            return epochP50;
+        }
+
+        public long getEpochP99() {
+            return epochP99;
+        }
+
+        public long getEpochMax() {
+            return epochMax;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * MBean attributes & operations
+     *******************************************************************************/
+    @Override
+    public boolean isEnabled() {
+        return on;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        on = enabled;
+    }
+
+    @Override
+    public long getEpochs() {
+        return epochs.sum();
+    }
+
+    @Override
+    public long getFullEvaluations() {
+        return fullEvaluations.sum();
+    }
+
+    @Override
+    public long getIncrementalEvaluations() {
+        return incrementalEvaluations.sum();
+    }
+
+    @Override
+    public long getReusedScores() {
+        return reusedScores.sum();
+    }
+
+    @Override
+    public long getGenomesAllocated() {
+        return genomesAllocated.sum();
+    }
+
+    @Override
+    public String[] getPhaseNames() {
+
+        String[] names = new String[phaseNanos.length];
+        for (Phase phase : Phase.values()) {
+            names[phase.ordinal()] = phase.name().toLowerCase();
+        }
+
+        return names;
+    }
+
+    @Override
+    public long[] getPhaseNanos() {
+        return snapshot().phaseNanos;
+    }
+
+    @Override
+    public long getEpochP50Nanos() {
+        return epochLatency.percentile(50);
+    }
+
+    @Override
+    public long getEpochP99Nanos() {
+        return epochLatency.percentile(99);
+    }
+
+    @Override
+    public long getEpochMaxNanos() {
+        return epochLatency.getMax();
+    }
+
+    // counts recorded while resetting may be lost
+    @Override
+    public void reset() {
+
+        for (LongAdder adder : phaseNanos) {
+            adder.reset();
+        }
+        epochs.reset();
+        fullEvaluations.reset();
+        incrementalEvaluations.reset();
+        reusedScores.reset();
+        genomesAllocated.reset();
+        epochLatency.reset();
+
+    }
+
+}
@@ -0,0 +1,35 @@
+/************************************************************************************
+ * JMX view of SolverMetrics, registered as "sudoku:type=SolverMetrics".
+ * Counts & times are totals since the last reset, over every GeneticAlgorithm
+ * in the process.
+ ***********************************************************************************/
+public interface SolverMetricsMBean {
+
+    boolean isEnabled();
+
+    void setEnabled(boolean enabled);
+
+    long getEpochs();
+
+    long getFullEvaluations();
+
+    long getIncrementalEvaluations();
+
+    long getReusedScores();
+
+    long getGenomesAllocated();
+
+    // phase names & their total time in ns, in the same order
+    String[] getPhaseNames();
+
+    long[] getPhaseNanos();
+
+    long getEpochP50Nanos();
+
+    long getEpochP99Nanos();
+
+    long getEpochMaxNanos();
+
+    void reset();
+
+}
@@ -0,0 +1,611 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/************************************************************************************
+ * Solves puzzles sent over TCP, one request & one response per line.
+ *
+ * A request is a puzzle in PuzzleFormat, optionally preceded by an id & a tab &
+ * followed by tab separated budget options: "generations=K" & "ms=T" lower the
+ * configured generation & time limits for that puzzle. Requests without an id
+ * are numbered per connection. Each response is the id, a tab & either the
+ * solution, "unsolved", "timeout" or "error: " & a message. Responses come back
+ * as puzzles finish, not in request order. The line "stats" gets a line of
+ * server counters & latency percentiles back.
+ *
+ * One selector thread does all the network I/O. Parsed requests go on a shared
+ * queue, & each worker thread takes whatever is queued, up to the batch size,
+ * solves it with its own engine & hands all the responses back in one go, so
+ * under load the queue & selector are touched once per batch rather than once
+ * per puzzle. Engines live as long as their worker, so each keeps its search
+ * storage warm from one puzzle to the next; one that throws is replaced. The
+ * time limit counts from when a request is read, so a request that waits out
+ * its budget in the queue is answered "timeout" without being solved. A full
+ * queue answers "error: busy".
+ * A connection with more than MAX_QUEUED_OUTPUT bytes of responses its client
+ * has not read yet is not read from until the client catches up, so a client
+ * that sends without reading cannot fill the heap. A client may close its
+ * sending side once it has sent its requests: the connection stays open until
+ * every one has been answered.
+ ***********************************************************************************/
+public class SolverServer implements AutoCloseable {
+
+    private static final int READ_BUFFER_SIZE = 16384;
+    private static final int MAX_LINE_LENGTH = 1 << 20;
+    private static final int MAX_QUEUED_OUTPUT = 1 << 20;
+
+    private final SolverConfig config;
+    private final int numWorkers;
+    private final BlockingQueue<Request> requests;
+
+    private ServerSocketChannel serverChannel;
+    private Selector selector;
+    private Thread selectorThread;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    // connections with responses waiting to be registered for writing
+    private final Queue<Connection> writable = new ConcurrentLinkedQueue<>();
+
+    // stats since the server started
+    private final LatencyHistogram latency = new LatencyHistogram();   // read to response
+    private final LatencyHistogram solveTime = new LatencyHistogram(); // time in the engine
+    private final AtomicLong numSolved = new AtomicLong();
+    private final AtomicLong numTimeouts = new AtomicLong();
+    private final AtomicLong numRejected = new AtomicLong();
+    private final AtomicLong numBatches = new AtomicLong();
+
+
+    /********************************************************************************
+     * Constructor. Workers solve with the engine, budgets & batch size of a
+     * validated config, & up to queueSize requests wait for a worker.
+     *******************************************************************************/
+    public SolverServer(SolverConfig config, int numWorkers, int queueSize) {
+
+        if (numWorkers < 1) throw new IllegalArgumentException("numWorkers must be at least 1");
+        if (queueSize < 1) throw new IllegalArgumentException("queueSize must be at least 1");
+
+        this.config = config;
+        this.numWorkers = numWorkers;
+        this.requests = new ArrayBlockingQueue<>(queueSize);
+    }
+
+
+    /********************************************************************************
+     * Binds the configured port & starts the selector & worker threads.
+     *
+     * @return the port listened on, which is the chosen one for port 0
+     *******************************************************************************/
+    public int start() throws IOException {
+
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(config.getPort()));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        running = true;
+
+        for (int w = 0; w < numWorkers; w++) {
+            Thread worker = new Thread(this::work, "solver-worker-" + w);
+            worker.setDaemon(true);
+            worker.start();
+            workers.add(worker);
+        }
+
+        selectorThread = new Thread(this::select, "solver-selector");
+        selectorThread.start();
+
+        return serverChannel.socket().getLocalPort();
+    }
+
+
+    /********************************************************************************
+     * Stops accepting requests, closes every connection & waits for the threads
+     * to finish. Workers are interrupted, so engines give up the puzzles they
+     * are solving, which are not answered. If
+     * the calling thread is interrupted it stops waiting & keeps its interrupt
+     * status.
+     *******************************************************************************/
+    @Override
+    public void close() {
+
+        running = false;
+        if (selector != null) selector.wakeup();
+
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+
+        try {
+            if (selectorThread != null) selectorThread.join();
+            for (Thread worker : workers) {
+                worker.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+    }
+
+
+    /********************************************************************************
+     * A parsed request.
+     *******************************************************************************/
+    private static class Request {
+
+        private final Connection connection;
+        private final String id;
+        private final int[] puzzle;
+        private final int maxGenerations;
+        private final long timeLimit; // ns, Long.MAX_VALUE for none
+        private final long receivedTime;
+
+        private Request(Connection connection, String id, int[] puzzle, int maxGenerations, long timeLimit,
+                        long receivedTime) {
+            this.connection = connection;
+            this.id = id;
+            this.puzzle = puzzle;
+            this.maxGenerations = maxGenerations;
+            this.timeLimit = timeLimit;
+            this.receivedTime = receivedTime;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * A client connection. Only the selector thread reads & writes the channel;
+     * workers append responses to output under its lock.
+     *******************************************************************************/
+    private static class Connection {
+
+        private final SocketChannel channel;
+        private ByteBuffer input = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private long numRequests;
+        private boolean inputClosed;    // the client has sent everything
+
+        private final Queue<ByteBuffer> output = new ArrayDeque<>();
+        private long outputBytes;       // unwritten bytes in output, guarded by output
+        private long pending;           // queued requests not yet answered, guarded by output
+        private boolean queuedForWrite; // waiting in writable, guarded by output
+        private boolean closed;         // guarded by output
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Selector loop: accepts connections, reads & parses requests, & writes
+     * responses the workers have queued.
+     *******************************************************************************/
+    private void select() {
+
+        try {
+            while (running) {
+
+                selector.select();
+
+                for (Connection connection; (connection = writable.poll()) != null; ) {
+                    SelectionKey key = connection.channel.keyFor(selector);
+                    synchronized (connection.output) {
+                        connection.queuedForWrite = false;
+                    }
+                    if (key != null && key.isValid()) write(key, connection);
+                }
+
+                for (SelectionKey key : selector.selectedKeys()) {
+
+                    if (!key.isValid()) continue;
+
+                    // a failed accept, such as running out of file descriptors, leaves
+                    // the open connections & the listening socket as they were
+                    if (key.isAcceptable()) {
+                        try {
+                            accept();
+                        } catch (IOException e) {
+                            System.err.println("accept failed: " + e.getMessage());
+                        }
+                        continue;
+                    }
+
+                    try {
+                        if (key.isReadable()) read(key, (Connection) key.attachment());
+                        if (key.isValid() && key.isWritable()) write(key, (Connection) key.attachment());
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() != null) disconnect(key);
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+
+    }
+
+
+    private void accept() throws IOException {
+
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) return;
+
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Reads what has arrived & handles every complete line in it. Once the client
+     * has closed its side, its last line needs no newline, & the connection is
+     * closed when every request has been answered & the responses written.
+     *******************************************************************************/
+    private void read(SelectionKey key, Connection connection) throws IOException {
+
+        ByteBuffer input = connection.input;
+        boolean endOfInput = connection.channel.read(input) < 0;
+
+        long receivedTime = System.nanoTime();
+        input.flip();
+
+        int lineStart = input.position();
+        for (int i = lineStart; i < input.limit(); i++) {
+            if (input.get(i) != '\n') continue;
+
+            int end = i > lineStart && input.get(i - 1) == '\r' ? i - 1 : i;
+            String line = new String(input.array(), lineStart, end - lineStart, StandardCharsets.UTF_8);
+            handleLine(connection, line, receivedTime);
+            lineStart = i + 1;
+        }
+
+        if (endOfInput) {
+            if (lineStart < input.limit()) {
+                handleLine(connection, new String(input.array(), lineStart, input.limit() - lineStart,
+                        StandardCharsets.UTF_8), receivedTime);
+            }
+            connection.inputClosed = true;
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            closeIfDone(key, connection);
+            return;
+        }
+
+        input.position(lineStart);
+        input.compact();
+
+        // stop reading while the client is not reading its responses
+        synchronized (connection.output) {
+            if (connection.outputBytes > MAX_QUEUED_OUTPUT) {
+                key.interestOps(key.interestOps() & ~SelectionKey.OP_READ);
+            }
+        }
+
+        // grow for a long line, up to MAX_LINE_LENGTH
+        if (!input.hasRemaining()) {
+            if (input.capacity() >= MAX_LINE_LENGTH) throw new IOException("request line too long");
+            ByteBuffer larger = ByteBuffer.allocate(input.capacity() * 2);
+            input.flip();
+            larger.put(input);
+            connection.input = larger;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Parses a request line & queues it, or answers it at once if it is a stats
+     * request, malformed or the queue is full. The puzzle is parsed here, so one
+     * with a bad value never reaches an engine.
+     *******************************************************************************/
+    private void handleLine(Connection connection, String line, long receivedTime) {
+
+        if (line.trim().isEmpty()) return;
+        if (line.trim().equals("stats")) {
+            respond(connection, "stats\t" + statsLine());
+            return;
+        }
+
+        List<String> positional = new ArrayList<>(2);
+        int[] puzzle;
+        String id = Long.toString(++connection.numRequests);
+        int maxGenerations = config.getGenerations();
+        long timeLimit = config.getTimeLimit() == 0 ? Long.MAX_VALUE
+                : TimeUnit.MILLISECONDS.toNanos(config.getTimeLimit());
+
+        try {
+            for (String field : line.split("\t")) {
+                if (field.startsWith("generations=")) {
+                    int generations = Integer.parseInt(field.substring("generations=".length()));
+                    if (generations < 2) throw new IllegalArgumentException("generations must be at least 2");
+                    maxGenerations = Math.min(maxGenerations, generations);
+                } else if (field.startsWith("ms=")) {
+                    long ms = Long.parseLong(field.substring("ms=".length()));
+                    if (ms < 1) throw new IllegalArgumentException("ms must be at least 1");
+                    timeLimit = Math.min(timeLimit, TimeUnit.MILLISECONDS.toNanos(ms));
+                } else {
+                    positional.add(field);
+                }
+            }
+            if (positional.size() == 2) id = positional.remove(0);
+            if (positional.size() != 1) throw new IllegalArgumentException("expected [id tab] puzzle");
+            puzzle = PuzzleFormat.parse(positional.get(0));
+        } catch (IllegalArgumentException e) {
+            respond(connection, id + "\terror: " + e.getMessage());
+            return;
+        }
+
+        // counted first, so a worker's answer never finds it uncounted
+        synchronized (connection.output) {
+            connection.pending++;
+        }
+
+        if (!requests.offer(new Request(connection, id, puzzle, maxGenerations, timeLimit, receivedTime))) {
+            synchronized (connection.output) {
+                connection.pending--;
+            }
+            numRejected.incrementAndGet();
+            respond(connection, id + "\terror: busy");
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Writes as much queued output as the socket takes, & watches for the socket
+     * becoming writable again only while some is left. Reading resumes once the
+     * output is back under MAX_QUEUED_OUTPUT, unless the client has closed its
+     * side.
+     *******************************************************************************/
+    private void write(SelectionKey key, Connection connection) throws IOException {
+
+        synchronized (connection.output) {
+
+            while (!connection.output.isEmpty()) {
+                ByteBuffer buffer = connection.output.peek();
+                connection.outputBytes -= connection.channel.write(buffer);
+                if (buffer.hasRemaining()) break;
+                connection.output.poll();
+            }
+
+            int ops = connection.inputClosed || connection.outputBytes > MAX_QUEUED_OUTPUT ? 0
+                    : SelectionKey.OP_READ;
+            if (!connection.output.isEmpty()) ops |= SelectionKey.OP_WRITE;
+            key.interestOps(ops);
+        }
+
+        closeIfDone(key, connection);
+
+    }
+
+
+    /********************************************************************************
+     * Closes a connection whose client has sent everything, once every request
+     * has been answered & the responses written.
+     *******************************************************************************/
+    private void closeIfDone(SelectionKey key, Connection connection) {
+
+        synchronized (connection.output) {
+            if (!connection.inputClosed || connection.pending > 0 || !connection.output.isEmpty()) return;
+        }
+
+        disconnect(key);
+
+    }
+
+
+    private void disconnect(SelectionKey key) {
+
+        Connection connection = (Connection) key.attachment();
+        synchronized (connection.output) {
+            connection.closed = true;
+            connection.output.clear();
+            connection.outputBytes = 0;
+        }
+
+        key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Queues a response line for a connection, answering one of its queued
+     * requests if answersRequest. Returns whether the connection still has to be
+     * handed to the selector for writing.
+     *******************************************************************************/
+    private boolean append(Connection connection, String line, boolean answersRequest) {
+
+        ByteBuffer bytes = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+
+        synchronized (connection.output) {
+            if (answersRequest) connection.pending--;
+            if (connection.closed) return false;
+            connection.output.add(bytes);
+            connection.outputBytes += bytes.remaining();
+            if (connection.queuedForWrite) return false;
+            connection.queuedForWrite = true;
+            return true;
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Queues a response from the selector thread, which writes it on its next
+     * pass.
+     *******************************************************************************/
+    private void respond(Connection connection, String line) {
+        if (append(connection, line, false)) {
+            writable.add(connection);
+            selector.wakeup(); // so the next select() does not block
+        }
+    }
+
+
+    /********************************************************************************
+     * Worker loop: takes a batch of queued requests, solves them with this
+     * worker's engine & wakes the selector once for the batch.
+     *******************************************************************************/
+    private void work() {
+
+        Solver engine = config.createEngine();
+        List<Request> batch = new ArrayList<>(config.getBatch());
+
+        try {
+            while (running) {
+
+                batch.add(requests.take());
+                requests.drainTo(batch, config.getBatch() - 1);
+                numBatches.incrementAndGet();
+
+                boolean wake = false;
+                for (Request request : batch) {
+
+                    String response;
+                    try {
+                        response = solve(engine, request);
+                    } catch (Exception e) {
+                        // an engine that throws may be left mid-solve, so start again with a new one
+                        engine.close();
+                        engine = config.createEngine();
+                        response = "error: " + e.getMessage();
+                    }
+
+                    String line = request.id + "\t" + response;
+                    if (append(request.connection, line, true)) {
+                        writable.add(request.connection);
+                        wake = true;
+                    }
+                    latency.record(System.nanoTime() - request.receivedTime);
+                }
+                batch.clear();
+
+                if (wake) selector.wakeup();
+            }
+        } catch (InterruptedException e) {
+            // closing
+        } finally {
+            engine.close();
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Solves one request within what is left of its budget.
+     *******************************************************************************/
+    private String solve(Solver engine, Request request) throws Exception {
+
+        long startTime = System.nanoTime();
+        long remaining = request.timeLimit == Long.MAX_VALUE ? Long.MAX_VALUE
+                : request.timeLimit - (startTime - request.receivedTime);
+
+        if (remaining <= 0) {
+            numTimeouts.incrementAndGet();
+            return "timeout";
+        }
+
+        int[] board = engine.solve(PuzzleFormat.sizeOf(request.puzzle.length), request.puzzle,
+                request.maxGenerations, remaining);
+        long time = System.nanoTime() - startTime;
+        solveTime.record(time);
+
+        if (board != null) {
+            numSolved.incrementAndGet();
+            return PuzzleFormat.format(board);
+        }
+        if (time >= remaining) {
+            numTimeouts.incrementAndGet();
+            return "timeout";
+        }
+        return "unsolved";
+
+    }
+
+
+    /********************************************************************************
+     * Server counters & latency percentiles in ns, as space separated key=value
+     * pairs.
+     *******************************************************************************/
+    public String statsLine() {
+
+        long count = latency.getCount();
+        long batches = numBatches.get();
+
+        return "requests=" + count
+                + " solved=" + numSolved.get()
+                + " timeouts=" + numTimeouts.get()
+                + " rejected=" + numRejected.get()
+                + " queued=" + requests.size()
+                + " avg-batch=" + (batches == 0 ? 0 : (double) count / batches)
+                + " p50=" + latency.percentile(50)
+                + " p99=" + latency.percentile(99)
+                + " p999=" + latency.percentile(99.9)
+                + " max=" + latency.getMax()
+                + " solve-p50=" + solveTime.percentile(50)
+                + " solve-p99=" + solveTime.percentile(99)
+                + (config.getCache() == null ? "" : " " + config.getCache().statsLine());
+    }
+
+
+    /********************************************************************************
+     * Getters
+     *******************************************************************************/
+
+    // from reading a request to queueing its response
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    // time spent in the engine, for requests that reached it
+    public LatencyHistogram getSolveTime() {
+        return solveTime;
+    }
+
+    public long getNumSolved() {
+        return numSolved.get();
+    }
+
+    public long getNumTimeouts() {
+        return numTimeouts.get();
+    }
+
+}
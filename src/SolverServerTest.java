@@ -0,0 +1,157 @@
+import org.junit.Test;
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+
+public class SolverServerTest {
+
+    private static final String PUZZLE =
+            "53..7....6..195....98....6.8...6...34..8.3..17...2...6.6....28....419..5....8..79";
+
+    @Test
+    public void testAnswersEveryRequest() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"--port=0", "--engine=dlx", "--batch=4"});
+        config.validate();
+
+        try (SolverServer server = new SolverServer(config, 2, 64)) {
+
+            int port = server.start();
+
+            try (Socket socket = new Socket("localhost", port)) {
+
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+
+                for (int i = 0; i < 20; i++) {
+                    out.write("p" + i + "\t" + PUZZLE + "\tms=10000\n");
+                }
+                out.write("bad\t12345\n");
+                out.write(PUZZLE + "\tgenerations=1\n");
+                out.flush();
+
+                // responses may come back in any order
+                Map<String, String> responses = new HashMap<>();
+                for (int i = 0; i < 22; i++) {
+                    String[] fields = in.readLine().split("\t", 2);
+                    responses.put(fields[0], fields[1]);
+                }
+
+                String solution = PuzzleFormat.format(new DancingLinksSolver().solve(3, PuzzleFormat.parse(PUZZLE)));
+                for (int i = 0; i < 20; i++) {
+                    assertEquals(solution, responses.get("p" + i));
+                }
+                assertTrue(responses.get("bad").startsWith("error: "));
+                assertTrue(responses.get("22").startsWith("error: "));
+            }
+
+            assertEquals(20, server.getNumSolved());
+        }
+
+    }
+
+    @Test
+    public void testCloseAbandonsLongSolves() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"--port=0", "--engine=genetic", "--population=200",
+                "--generations=100000000"});
+        config.validate();
+
+        SolverServer server = new SolverServer(config, 1, 64);
+        int port = server.start();
+
+        try (Socket socket = new Socket("localhost", port)) {
+
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+            // two 5s in the first row, so it is never solved
+            out.write("5..5" + ".".repeat(77) + "\n");
+            out.flush();
+            Thread.sleep(200);
+
+            // without a stop check the worker would run every generation first
+            long startTime = System.nanoTime();
+            server.close();
+            assertTrue(System.nanoTime() - startTime < 5_000_000_000L);
+        }
+
+    }
+
+    @Test
+    public void testBadValueLeavesEngineIntact() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"--port=0", "--engine=dlx"});
+        config.validate();
+
+        // one worker, so both requests share an engine
+        try (SolverServer server = new SolverServer(config, 1, 64)) {
+
+            int port = server.start();
+
+            try (Socket socket = new Socket("localhost", port)) {
+
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+
+                // 'A' is 10, out of range on a 4x4 board
+                out.write("bad\t1....2....A.....\n");
+                out.flush();
+                assertTrue(in.readLine().startsWith("bad\terror: "));
+
+                out.write("good\t1....2..........\n");
+                out.flush();
+                String[] fields = in.readLine().split("\t", 2);
+                assertEquals("good", fields[0]);
+                assertTrue(BitboardFitness.isSolved(2, PuzzleFormat.parse(fields[1])));
+            }
+        }
+
+    }
+
+    @Test
+    public void testAnswersAfterClientHalfCloses() throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.parseArgs(new String[] {"--port=0", "--engine=dlx"});
+        config.validate();
+
+        try (SolverServer server = new SolverServer(config, 2, 64)) {
+
+            int port = server.start();
+
+            try (Socket socket = new Socket("localhost", port)) {
+
+                Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                        StandardCharsets.UTF_8));
+
+                // the last line has no newline
+                for (int i = 0; i < 10; i++) {
+                    out.write("p" + i + "\t" + PUZZLE + "\n");
+                }
+                out.write("last\t" + PUZZLE);
+                out.flush();
+                socket.shutdownOutput();
+
+                // every response arrives before the server closes the connection
+                int count = 0;
+                while (in.readLine() != null) count++;
+                assertEquals(11, count);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,60 @@
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/************************************************************************************
+ * The original control rule: every interval generations, raise the mutation
+ * rate by 1 if the best fitness has not changed since the last check.
+ ***********************************************************************************/
+public class StagnationPolicy implements ControlPolicy {
+
+    private final int interval;
+    private double lastBest;
+
+
+    /********************************************************************************
+     * Constructor. Checks every 100 generations.
+     *******************************************************************************/
+    public StagnationPolicy() {
+        this(100);
+    }
+
+
+    public StagnationPolicy(int interval) {
+
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1");
+
+        this.interval = interval;
+    }
+
+
+    @Override
+    public void adapt(GeneticAlgorithm genAlg) {
+
+        if (genAlg.getGeneration() % interval != 0) return;
+
+        double best = genAlg.getFittestGenome().getFitnessScore();
+
+        //compare to last check
+        if (lastBest == best) {
+            genAlg.incrementMutationRate();
+        }
+        else {
+            lastBest = best;
+        }
+
+    }
+
+
+    @Override
+    public void writeState(DataOutput out) throws IOException {
+        out.writeDouble(lastBest);
+    }
+
+    @Override
+    public void readState(DataInput in) throws IOException {
+        lastBest = in.readDouble();
+    }
+
+}
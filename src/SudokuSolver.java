@@ -1,8 +1,27 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileReader;
 import java.io.IOException;
 import java.io.FileWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
 
 
 /************************************************************************************
@@ -10,167 +29,850 @@ import java.util.List;
  ***********************************************************************************/
 public class SudokuSolver {
 
+    // a 9x9 puzzle used by the benchmark, row-major with 0 for empty cells
+    private static final int[] SAMPLE_PUZZLE = {
+            5, 3, 0, 0, 7, 0, 0, 0, 0,
+            6, 0, 0, 1, 9, 5, 0, 0, 0,
+            0, 9, 8, 0, 0, 0, 0, 6, 0,
+            8, 0, 0, 0, 6, 0, 0, 0, 3,
+            4, 0, 0, 8, 0, 3, 0, 0, 1,
+            7, 0, 0, 0, 2, 0, 0, 0, 6,
+            0, 6, 0, 0, 0, 0, 2, 8, 0,
+            0, 0, 0, 4, 1, 9, 0, 0, 5,
+            0, 0, 0, 0, 8, 0, 0, 7, 9
+    };
+
+    // generations between checkpoints of evolveGenomes
+    private static final int CHECKPOINT_INTERVAL = 100;
+
+    // first two ints of a checkpoint file
+    private static final int CHECKPOINT_MAGIC = 0x53444b43; // "SDKC"
+    private static final int CHECKPOINT_VERSION = 7;
 
     /********************************************************************************
-     * Evolves the population over the set number of generations & outputs results.
+     * Evolves the population over the set number of generations & outputs results,
+     * using a random seed.
      *******************************************************************************/
     public static void evolveGenomes(int N, int maxNumberGenerations, int numberOfRuns, String filename) throws Exception {
+        evolveGenomes(N, maxNumberGenerations, numberOfRuns, filename, new SplittableRandom().nextLong());
+    }
 
-        //totals to be used for calculating avg best fitness at each epoch
-        double[] bestFitness = new double[maxNumberGenerations];
 
-        double sumGenSolved = 0;
-        int minGen = maxNumberGenerations;
-        int maxGen = 0;
-        double sumTimeSolved = 0;
-        double minTime = Double.MAX_VALUE;
-        double maxTime = 0;
-        double sumFinalMutationRate = 0;
+    /********************************************************************************
+     * Evolves the population over the set number of generations & outputs results.
+     * Each run's seed is drawn from the given seed & printed, so the same seed
+     * replays every run's fitness trace exactly.
+     *******************************************************************************/
+    public static void evolveGenomes(int N, int maxNumberGenerations, int numberOfRuns, String filename,
+                                     long seed) throws Exception {
+        evolveGenomes(N, maxNumberGenerations, numberOfRuns, filename, seed, null);
+    }
 
-        for (int run = 0; run < numberOfRuns; run++) {
 
-            long startTime = System.nanoTime();
+    /********************************************************************************
+     * Evolves the population over the set number of generations & outputs results,
+     * saving a checkpoint to checkpointFile (unless it is null) every
+     * CHECKPOINT_INTERVAL generations so resumeGenomes can pick up after a crash.
+     * Prints the best fitness of every generation.
+     *******************************************************************************/
+    public static void evolveGenomes(int N, int maxNumberGenerations, int numberOfRuns, String filename,
+                                     long seed, String checkpointFile) throws Exception {
+        evolveGenomes(N, maxNumberGenerations, numberOfRuns, filename, seed, checkpointFile,
+                new SampledReporter(1));
+    }
 
-            // reset GA
-            GeneticAlgorithm genAlg = new GeneticAlgorithm(N);
-            int generationCounter = 1;
 
-            double centenialBest = 0;
+    /********************************************************************************
+     * Evolves the population over the set number of generations & outputs results,
+     * passing every generation to reporter. The caller closes the reporter.
+     *******************************************************************************/
+    public static void evolveGenomes(int N, int maxNumberGenerations, int numberOfRuns, String filename,
+                                     long seed, String checkpointFile, GenerationReporter reporter) throws Exception {
+        evolveGenomes(N, maxNumberGenerations, numberOfRuns, filename, seed, checkpointFile, reporter,
+                LocalSearch.OFF);
+    }
 
-            // evolve population until solved
-            while (generationCounter < maxNumberGenerations && genAlg.getSolutionFound() == false) {
 
-                // execute 1 epoch
-                genAlg.epoch();
+    /********************************************************************************
+     * Evolves the population over the set number of generations & outputs results,
+     * running localSearch on every child. A checkpoint records the search, so
+     * resumeGenomes continues with the same one.
+     *******************************************************************************/
+    public static void evolveGenomes(int N, int maxNumberGenerations, int numberOfRuns, String filename,
+                                     long seed, String checkpointFile, GenerationReporter reporter,
+                                     LocalSearch localSearch) throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.set("n", Integer.toString(N));
+        config.set("generations", Integer.toString(maxNumberGenerations));
+        config.set("runs", Integer.toString(numberOfRuns));
+        config.set("results", filename);
+        config.set("seed", Long.toString(seed));
+        config.set("checkpoint", checkpointFile == null ? "" : checkpointFile);
+        config.set("local-search", localSearch.toString());
+        config.validate();
+
+        evolveGenomes(config, reporter);
+    }
 
-                // results
-                double best = genAlg.getFittestGenome().getFitnessScore();
 
-                bestFitness[generationCounter] += best;
-                System.out.println("generation " + generationCounter + " best fitness: " + best);
+    /********************************************************************************
+     * Evolves the runs of an experiment with the GA settings, seed, results &
+     * checkpoint files of a validated config. A checkpoint records the config,
+     * so resumeGenomes continues with the same settings.
+     *******************************************************************************/
+    public static void evolveGenomes(SolverConfig config, GenerationReporter reporter) throws Exception {
 
-                if (generationCounter % 100 == 0) {
+        System.out.print(config);
+        evolve(config, reporter, new EvolutionStats(config.getGenerations()), null);
+    }
 
-                    //compare to last centenialBest
-                    if (centenialBest == best) {
-                        genAlg.incrementMutationRate();
-                    }
-                    else {
-                        centenialBest = best;
+
+    /********************************************************************************
+     * Continues the experiment saved in a checkpoint file from the generation it
+     * was saved at, writing its results to filename. The remaining runs match
+     * those of an uninterrupted experiment.
+     *******************************************************************************/
+    public static void resumeGenomes(String checkpointFile, String filename) throws Exception {
+        resumeGenomes(checkpointFile, filename, new SampledReporter(1));
+    }
+
+
+    /********************************************************************************
+     * Continues the experiment saved in a checkpoint file, writing its results
+     * to filename & passing every generation to reporter.
+     *******************************************************************************/
+    public static void resumeGenomes(String checkpointFile, String filename,
+                                     GenerationReporter reporter) throws Exception {
+        resume(checkpointFile, filename, reporter);
+    }
+
+
+    /********************************************************************************
+     * Continues the experiment saved in a checkpoint file, writing its results
+     * to the file it was writing to before.
+     *******************************************************************************/
+    public static void resumeGenomes(String checkpointFile, GenerationReporter reporter) throws Exception {
+        resume(checkpointFile, null, reporter);
+    }
+
+
+    /********************************************************************************
+     * Reads a checkpoint & continues its experiment, writing the results to
+     * filename or, if that is null, the saved results file.
+     *******************************************************************************/
+    private static void resume(String checkpointFile, String filename, GenerationReporter reporter) throws Exception {
+
+        byte[] checkpoint = CheckpointWriter.load(Paths.get(checkpointFile));
+        if (checkpoint == null) throw new IOException("no checkpoint in " + checkpointFile);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(checkpoint));
+
+        if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+            throw new IOException(checkpointFile + " is not a checkpoint");
+        }
+
+        SolverConfig config = SolverConfig.read(in);
+        config.set("checkpoint", checkpointFile);
+        if (filename != null) config.set("results", filename);
+
+        RunProgress progress = new RunProgress();
+        progress.run = in.readInt();
+        progress.generationCounter = in.readInt();
+        progress.time = in.readLong();
+        progress.resultsPosition = in.readLong();
+        progress.runStart = in.readLong();
+
+        EvolutionStats stats = EvolutionStats.read(in);
+        progress.genAlg = GeneticAlgorithm.readState(in, config.getThreads(), config.createPolicy());
+
+        System.out.print(config);
+        System.out.println("resuming run " + progress.run + " at generation " + progress.generationCounter);
+
+        evolve(config, reporter, stats, progress);
+    }
+
+
+    /********************************************************************************
+     * How far the current run of an experiment has got.
+     *******************************************************************************/
+    private static class RunProgress {
+        int run;
+        GeneticAlgorithm genAlg;
+        int generationCounter = 1;
+        long time; // nanoseconds spent on the run so far
+
+        // how much of the per-run results file belongs to the checkpoint
+        long resultsPosition;
+        long runStart;
+    }
+
+
+    /********************************************************************************
+     * Runs the experiment's remaining runs, starting with resumeFrom if it is
+     * not null, streaming each generation's best fitness to the per-run results
+     * file. Then prints the summary & writes the averages to filename.
+     *******************************************************************************/
+    private static void evolve(SolverConfig config, GenerationReporter reporter, EvolutionStats stats,
+                               RunProgress resumeFrom) throws Exception {
+
+        int N = config.getN();
+        int numberOfRuns = config.getRuns();
+        String filename = config.getResults();
+        String checkpointFile = config.getCheckpoint();
+        long seed = config.getSeed();
+        int maxNumberGenerations = stats.getMaxNumberGenerations();
+
+        // one seed per run, drawn in run order
+        SplittableRandom runSeeds = new SplittableRandom(seed);
+        int firstRun = resumeFrom == null ? 0 : resumeFrom.run;
+        for (int run = 0; run < firstRun; run++) {
+            runSeeds.nextLong();
+        }
+
+        CheckpointWriter checkpoints = checkpointFile == null ? null : new CheckpointWriter(Paths.get(checkpointFile));
+        ResultsWriter results = resumeFrom == null ? new ResultsWriter(filename)
+                : new ResultsWriter(filename, resumeFrom.run, resumeFrom.resultsPosition, resumeFrom.runStart);
+
+        try {
+            for (int run = firstRun; run < numberOfRuns; run++) {
+
+                long runSeed = runSeeds.nextLong();
+
+                RunProgress progress = resumeFrom;
+                resumeFrom = null;
+
+                if (progress == null) {
+                    System.out.println("run " + run + " seed: " + runSeed);
+
+                    // reset GA
+                    progress = new RunProgress();
+                    progress.run = run;
+                    progress.genAlg = config.createAlgorithm(runSeed);
+                    results.startRun(run);
+                }
+
+                GeneticAlgorithm genAlg = progress.genAlg;
+                long startTime = System.nanoTime() - progress.time;
+
+                // evolve population until solved
+                while (progress.generationCounter < maxNumberGenerations && genAlg.getSolutionFound() == false) {
+
+                    // execute 1 epoch
+                    genAlg.epoch();
+
+                    // results
+                    double best = genAlg.getFittestGenome().getFitnessScore();
+
+                    stats.recordGeneration(progress.generationCounter, best);
+                    results.writeGeneration(progress.generationCounter, best);
+                    reporter.report(progress.run, progress.generationCounter, genAlg);
+
+                    if (genAlg.getSolutionFound() == false) {
+                        progress.generationCounter++;
+
+                        if (checkpoints != null && progress.generationCounter % CHECKPOINT_INTERVAL == 0) {
+                            progress.time = System.nanoTime() - startTime;
+                            progress.resultsPosition = results.sync();
+                            progress.runStart = results.getRunStart();
+                            checkpoints.save(checkpoint(config, progress, stats));
+                        }
                     }
+
                 }
 
-                if (genAlg.getSolutionFound() == false) generationCounter++;
+                long endTime = System.nanoTime();
+                results.endRun();
+
+                // update reporting values
+                stats.recordRun(progress.generationCounter, endTime - startTime, genAlg.getMutationRate());
+
+                genAlg.shutdown();
 
+                // output results
+                System.out.println("final mutation rate: " + genAlg.getMutationRate());
+                System.out.println("Best genotype fitness: " + genAlg.getFittestGenome().getFitnessScore());
+                System.out.println("Best solution genotype: ");
+                genAlg.getFittestGenome().printGenotype(N);
+
+            }
+            // output reporting values
+            stats.printSummary();
+
+            // save avg best fitness for each epoch
+            System.out.println("writing results to " + filename + "...");
+            results.writeAverages(stats);
+
+        } finally {
+            try {
+                results.close();
+            } finally {
+                if (checkpoints != null) checkpoints.close();
             }
+        }
+
+    }
+
+
+    /********************************************************************************
+     * Packs the experiment's config, totals & current run into a checkpoint. The
+     * population is only copied here; its cells are packed by the returned task,
+     * on the checkpoint writer's thread, so the run is not held up.
+     *******************************************************************************/
+    private static Callable<byte[]> checkpoint(SolverConfig config, RunProgress progress,
+                                               EvolutionStats stats) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        config.write(out);
+
+        out.writeInt(progress.run);
+        out.writeInt(progress.generationCounter);
+        out.writeLong(progress.time);
+        out.writeLong(progress.resultsPosition);
+        out.writeLong(progress.runStart);
+
+        stats.write(out);
+        GeneticAlgorithm.State state = progress.genAlg.snapshotState();
+
+        return () -> {
+            state.write(out);
+            out.flush();
+            return bytes.toByteArray();
+        };
+    }
+
+
+    /********************************************************************************
+     * Evolves numberOfRuns runs of every setting of a parameter grid on numThreads
+     * threads, writing each setting's results to resultsPrefix-<settings>.csv &
+     * printing the average generations & time to solve of each.
+     *******************************************************************************/
+    public static void runExperiment(List<ExperimentScheduler.Settings> grid, int maxNumberGenerations,
+                                     int numberOfRuns, String resultsPrefix, int numThreads,
+                                     long seed) throws Exception {
 
-            long endTime = System.nanoTime();
+        System.out.println("seed: " + seed);
 
-            // finish filling out results with 1's if ended before max # generations
-            for (int j = generationCounter + 1; j < maxNumberGenerations; j++) {
-                bestFitness[j] += 1.0;
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+
+        try {
+            ExperimentScheduler scheduler = new ExperimentScheduler(executor, maxNumberGenerations, numberOfRuns, seed);
+            Map<ExperimentScheduler.Settings, EvolutionStats> results = scheduler.run(grid, resultsPrefix);
+
+            System.out.println("settings,runs,avg gen to solve,avg time to solve (ns)");
+            for (Map.Entry<ExperimentScheduler.Settings, EvolutionStats> entry : results.entrySet()) {
+                EvolutionStats stats = entry.getValue();
+                System.out.println(entry.getKey() + "," + stats.getNumRuns() + "," + stats.getAvgGenerations()
+                        + "," + stats.getAvgTime());
             }
+        } finally {
+            executor.shutdownNow();
+        }
 
-            // update reporting values
-            long timeSolved = (endTime - startTime);
-            sumTimeSolved += timeSolved;
-            if (timeSolved < minTime) minTime = timeSolved;
-            if (timeSolved > maxTime) maxTime = timeSolved;
+    }
+
+
+    /********************************************************************************
+     * Evolves an island model until solved or the generation limit is reached,
+     * printing per island stats after every migration.
+     *******************************************************************************/
+    public static void evolveIslands(int N, int numIslands, int islandPopSize, int migrationInterval,
+                                     int numMigrants, IslandModel.Topology topology,
+                                     int maxNumberGenerations, long seed) throws Exception {
 
-            sumGenSolved += generationCounter;
-            if (generationCounter < minGen) minGen = generationCounter;
-            if (generationCounter > maxGen) maxGen = generationCounter;
+        System.out.println("seed: " + seed);
 
-            sumFinalMutationRate += genAlg.getMutationRate();
+        long startTime = System.nanoTime();
 
-            // output results
-            System.out.println("final mutation rate: " + genAlg.getMutationRate());
-            System.out.println("Best genotype fitness: " + genAlg.getFittestGenome().getFitnessScore());
-            System.out.println("Best solution genotype: ");
-            genAlg.getFittestGenome().printGenotype(N);
+        IslandModel islandModel = new IslandModel(N, numIslands, islandPopSize, migrationInterval,
+                numMigrants, topology, seed);
 
+        while (islandModel.getGenerations(0) < maxNumberGenerations && !islandModel.getSolutionFound()) {
+            islandModel.epoch();
+            islandModel.printStats();
         }
 
-        // output reporting values
-        double avgGensToSolve = sumGenSolved / numberOfRuns;
-        double avgTimeToSolve = sumTimeSolved / numberOfRuns;
-        double avgFinalMutationRate = sumFinalMutationRate / numberOfRuns;
+        islandModel.shutdown();
+
+        long endTime = System.nanoTime();
 
-        System.out.println("Avg time to solve: " + avgTimeToSolve);
-        System.out.println("min time " + minTime);
-        System.out.println("max time " + maxTime);
-        System.out.println("Avg gen to solve: " + avgGensToSolve);
-        System.out.println("min gen " + minGen);
-        System.out.println("max gen " + maxGen);
-        System.out.println("avg final mut rate: " + avgFinalMutationRate);
+        // output results
+        System.out.println("time: " + (endTime - startTime));
+        System.out.println("Best genotype fitness: " + islandModel.getFittestGenome().getFitnessScore());
+        System.out.println("Best solution genotype: ");
+        islandModel.getFittestGenome().printGenotype(N);
+
+    }
+
+
+    /********************************************************************************
+     * Creates a generation reporter: "off", a number K to print every Kth
+     * generation, or a file name to write every generation to in the background.
+     *******************************************************************************/
+    public static GenerationReporter createReporter(String mode) throws IOException {
+        return createReporter(mode, 1);
+    }
 
-        // write results to csv file
-        System.out.println("writing results to csv...");
 
-        // save avg best fitness for each epoch to csv
-        List<List<String>> results = new ArrayList<>();
+    /********************************************************************************
+     * As above, writing every fileInterval-th generation to a file. Each record
+     * scans the whole population on the solver thread, so long runs should not
+     * write every generation.
+     *******************************************************************************/
+    public static GenerationReporter createReporter(String mode, int fileInterval) throws IOException {
 
-        for(int epoch = 1; epoch<maxNumberGenerations;epoch++) {
+        if (mode.equals("off")) return GenerationReporter.OFF;
+        if (mode.chars().allMatch(Character::isDigit)) return new SampledReporter(Integer.parseInt(mode));
+        return new AsyncFileReporter(Paths.get(mode), fileInterval, 4096);
+    }
 
-            double avgBestFitness = bestFitness[epoch] / numberOfRuns;
 
-            List<String> epochResults = Arrays.asList(
-                    Integer.toString(epoch),
-                    Double.toString(avgBestFitness)
-            );
-            results.add(epochResults);
+    /********************************************************************************
+     * Creates a solver engine by name: "genetic", "memetic" (genetic with
+     * min-conflicts on every child), "exact" or "dlx". The genetic engines use
+     * the default GA settings & start every puzzle from the given seed.
+     *******************************************************************************/
+    public static Solver createEngine(String name, long seed) {
+
+        SolverConfig config = new SolverConfig();
+        config.set("engine", name);
+        config.set("seed", Long.toString(seed));
+        config.validate();
+
+        return config.createEngine();
+    }
+
+
+    /********************************************************************************
+     * Solves every puzzle in a file (or stdin for "-") on all cores with the
+     * named engine, writing the solutions to a file (or stdout for "-") & the
+     * run stats to stderr.
+     *******************************************************************************/
+    public static void solveBatch(String inputFile, String outputFile, String engineName,
+                                  long seed) throws Exception {
+
+        SolverConfig config = new SolverConfig();
+        config.set("engine", engineName);
+        config.set("seed", Long.toString(seed));
+        config.validate();
+
+        solveBatch(inputFile, outputFile, config);
+    }
+
+
+    /********************************************************************************
+     * Solves every puzzle in a file (or stdin for "-") on all cores with the
+     * engine of a validated config, writing the solutions to a file (or stdout
+     * for "-") & the run stats to stderr. Without a cache, results do not
+     * depend on which worker solves which puzzle; with one, a puzzle with
+     * several solutions gets whichever one its first solved copy found.
+     *******************************************************************************/
+    public static void solveBatch(String inputFile, String outputFile, SolverConfig config) throws Exception {
+
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        BatchSolver batchSolver = new BatchSolver(config::createEngine, numThreads, 1024);
+
+        SolutionCache cache = config.getCache();
+
+        try (BufferedReader in = new BufferedReader(inputFile.equals("-")
+                     ? new InputStreamReader(System.in) : new FileReader(inputFile));
+             Writer out = new BufferedWriter(outputFile.equals("-")
+                     ? new OutputStreamWriter(System.out) : new FileWriter(outputFile))) {
+
+            batchSolver.run(in, out);
+        } finally {
+            config.closeCache();
         }
 
-        try {
-            writeToCSV(filename, results);
-        } catch(IOException e) {
-            e.printStackTrace();
+        batchSolver.printStats();
+        if (cache != null) System.err.println(cache.statsLine());
+
+    }
+
+
+    /********************************************************************************
+     * Starts a SolverServer on the port of a validated config, with one worker
+     * per core (per config thread count, for the genetic engines), & prints the
+     * port. The server runs until the process is stopped, printing its stats to
+     * stderr & saving any cache file on the way out.
+     *******************************************************************************/
+    public static void serve(SolverConfig config) throws Exception {
+
+        int numWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() / config.getThreads());
+        SolverServer server = new SolverServer(config, numWorkers, 4096);
+
+        int port = server.start();
+        System.out.println("listening on port " + port + " with " + numWorkers + " workers");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            System.err.println(server.statsLine());
+            try {
+                config.closeCache();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+
+    }
+
+
+    /********************************************************************************
+     * Runs a LoadGenerator against a server: "load [host:]port [connections
+     * [requests [window [file]]]]". The puzzles come from a file of puzzle lines,
+     * or are all the sample puzzle. A config time limit is sent as every
+     * request's budget.
+     *******************************************************************************/
+    private static void loadTest(SolverConfig config, List<String> a) throws Exception {
+
+        String address = a.get(1);
+        int colon = address.lastIndexOf(':');
+        String host = colon < 0 ? "localhost" : address.substring(0, colon);
+        int port = Integer.parseInt(address.substring(colon + 1));
+
+        int connections = a.size() > 2 ? Integer.parseInt(a.get(2)) : 8;
+        int requests = a.size() > 3 ? Integer.parseInt(a.get(3)) : 10000;
+        int window = a.size() > 4 ? Integer.parseInt(a.get(4)) : 4;
+
+        List<String> puzzles = new ArrayList<>();
+        if (a.size() > 5) {
+            for (String line : Files.readAllLines(Paths.get(a.get(5)))) {
+                if (!line.trim().isEmpty()) puzzles.add(line.trim());
+            }
+        } else {
+            puzzles.add(PuzzleFormat.format(SAMPLE_PUZZLE));
         }
 
+        String options = config.getTimeLimit() == 0 ? "" : "\tms=" + config.getTimeLimit();
+
+        LoadGenerator load = new LoadGenerator(host, port, puzzles);
+        load.run(connections, requests, window, options);
+        load.printStats();
+
     }
 
 
     /********************************************************************************
-     * Write results to CSV file.
+     * Runs each engine on the same puzzle numberOfRuns times & prints the average,
+     * min & max time to solve & how many runs found a solution.
      *******************************************************************************/
-    public static void writeToCSV(String filename,List<List<String>> results) throws IOException {
+    public static void benchmarkEngines(int N, int[] puzzle, int numberOfRuns) throws Exception {
 
-        FileWriter csvWriter = null;
-        try {
-            csvWriter = new FileWriter(filename);
-        } catch (IOException e) {
-            e.printStackTrace();
+        String[] names = {"genetic", "memetic", "exact", "dlx"};
+        Solver[] engines = {new GeneticSolver(10000, 1, 42), new GeneticSolver(10000, 1, 42, new MinConflicts(20)),
+                new ExactSolver(), new DancingLinksSolver()};
+
+        System.out.println("engine,avg time (ns),min time (ns),max time (ns),solved");
+
+        for (int e = 0; e < engines.length; e++) {
+
+            double sumTime = 0;
+            long minTime = Long.MAX_VALUE;
+            long maxTime = 0;
+            int solved = 0;
+
+            for (int run = 0; run < numberOfRuns; run++) {
+
+                long startTime = System.nanoTime();
+                int[] board = engines[e].solve(N, puzzle.clone());
+                long time = System.nanoTime() - startTime;
+
+                sumTime += time;
+                if (time < minTime) minTime = time;
+                if (time > maxTime) maxTime = time;
+                if (board != null) solved++;
+            }
+
+            System.out.println(names[e] + "," + (sumTime / numberOfRuns) + "," + minTime + "," + maxTime + ","
+                    + solved + "/" + numberOfRuns);
+            engines[e].close();
         }
-        //add column headers
-        csvWriter.append("epoch");
-        csvWriter.append(",");
-        csvWriter.append("avg best fitness");
-        csvWriter.append("\n");
 
-        //add data
-        for (List<String> rowData : results) {
-            csvWriter.append(String.join(",", rowData));
-            csvWriter.append("\n");
+    }
+
+
+    /********************************************************************************
+     * Times a fixed number of epochs from the same seed with 1, 2, 4, 8 & 16
+     * threads, printing the speedup over one thread & checking that every
+     * thread count produced the same best-fitness trace.
+     *******************************************************************************/
+    public static void scalingReport(int N, int numberOfGenerations, long seed) throws Exception {
+
+        int[] threadCounts = {1, 2, 4, 8, 16};
+        double[] baselineTrace = null;
+        double baselineTime = 0;
+
+        // warm up the JIT so the single-threaded baseline is not penalised
+        GeneticAlgorithm warmUp = new GeneticAlgorithm(N, 1, seed);
+        for (int generation = 0; generation < numberOfGenerations; generation++) {
+            warmUp.epoch();
+        }
+
+        System.out.println("threads,time (ms),speedup,same trace");
+
+        for (int threads : threadCounts) {
+
+            long startTime = System.nanoTime();
+            double[] trace = fitnessTrace(N, numberOfGenerations, threads, seed);
+            double time = (System.nanoTime() - startTime) / 1e6;
+
+            if (baselineTrace == null) {
+                baselineTrace = trace;
+                baselineTime = time;
+            }
+
+            System.out.println(threads + "," + time + "," + (baselineTime / time) + ","
+                    + Arrays.equals(baselineTrace, trace));
         }
 
-        csvWriter.flush();
-        csvWriter.close();
+    }
+
+
+    /********************************************************************************
+     * Runs a fixed number of epochs & returns the best fitness after each one.
+     * The trace depends only on N, the generation count & the seed.
+     *******************************************************************************/
+    public static double[] fitnessTrace(int N, int numberOfGenerations, int numThreads, long seed) throws Exception {
+
+        GeneticAlgorithm genAlg = new GeneticAlgorithm(N, numThreads, seed);
+        double[] trace = new double[numberOfGenerations];
+
+        try {
+            for (int generation = 0; generation < numberOfGenerations; generation++) {
+                genAlg.epoch();
+                trace[generation] = genAlg.getFittestGenome().getFitnessScore();
+            }
+        } finally {
+            genAlg.shutdown();
+        }
 
+        return trace;
     }
 
 
     /********************************************************************
-     * Run the solver.
+     * Run the solver. The first argument picks the command (the default
+     * is "evolve"), followed by its positional arguments. Any
+     * --key=value option sets a SolverConfig parameter & --config=file
+     * loads them from a properties file; all of them are checked before
+     * the command runs.
+     *
+     *   evolve [seed [checkpoint|- [report [search]]]]
+     *                         runs an experiment; a bare seed works too
+     *   resume checkpoint [report]
+     *                         continues from the last save
+     *   batch input output [engine [seed]]
+     *                         solves a file of puzzles
+     *   trace seed [generations]
+     *                         prints the best fitness per generation
+     *   serve [port]          solves puzzles sent over TCP, see SolverServer
+     *   load [host:]port [connections [requests [window [file]]]]
+     *                         measures a server's throughput
+     *   experiment [threads]  runs a parameter grid concurrently
+     *   islands               runs the island model
+     *   scaling               prints the thread scaling report
+     *   benchmark             compares the engines on a sample puzzle
+     *   exact, dlx [n]        fill a blank board with an exact solver
      *******************************************************************/
     public static void main(String[] args) {
 
+        SolverConfig config = new SolverConfig();
+        List<String> a;
+        String command;
+
         try {
-            evolveGenomes(3, 10000, 20, "results.csv");
+            a = config.parseArgs(args);
+
+            // no command, or a bare seed as in the old form of evolve
+            if (a.isEmpty() || a.get(0).matches("-?\\d+")) a.add(0, "evolve");
+            command = a.get(0);
+
+            applyArguments(config, command, a);
+            config.validate();
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("usage: SudokuSolver [command [args]] [--config=file] [--key=value ...]");
+            System.err.println("keys: " + SolverConfig.KEYS);
+            System.exit(2);
+            return;
+        }
+
+        try {
+            startMetrics(config.getMetrics());
+
+            switch (command) {
+                case "scaling":
+                    scalingReport(config.getN(), 50, config.getSeed());
+                    break;
+
+                case "exact":
+                    Genome.printBoard(config.getN(), new ExactSolver().solve(config.getN(),
+                            new int[(int) Math.pow(config.getN(), 4)]));
+                    break;
+
+                case "dlx":
+                    Genome.printBoard(config.getN(), new DancingLinksSolver().solve(config.getN(),
+                            new int[(int) Math.pow(config.getN(), 4)]));
+                    break;
+
+                case "batch":
+                    solveBatch(a.get(1), a.get(2), config);
+                    break;
+
+                case "trace":
+                    int generations = a.size() > 2 ? Integer.parseInt(a.get(2)) : 100;
+                    double[] trace = fitnessTrace(config.getN(), generations, config.getThreads(), config.getSeed());
+                    for (int generation = 0; generation < trace.length; generation++) {
+                        System.out.println((generation + 1) + "," + trace[generation]);
+                    }
+                    break;
+
+                case "benchmark":
+                    benchmarkEngines(3, SAMPLE_PUZZLE, 5);
+                    break;
+
+                case "islands":
+                    int numIslands = Runtime.getRuntime().availableProcessors();
+                    evolveIslands(config.getN(), numIslands, config.getPopSize() / numIslands, 50, 5,
+                            IslandModel.Topology.RING, config.getGenerations(), config.getSeed());
+                    break;
+
+                case "experiment":
+                    List<ExperimentScheduler.Settings> grid = ExperimentScheduler.grid(new int[] {config.getN()},
+                            new int[] {1000, 10000}, new int[] {3, 5}, new int[] {50, 80});
+                    runExperiment(grid, config.getGenerations(), config.getRuns(), "experiment",
+                            config.getThreads(), config.getSeed());
+                    break;
+
+                case "serve":
+                    serve(config);
+                    break;
+
+                case "load":
+                    loadTest(config, a);
+                    break;
+
+                case "resume":
+                    try (GenerationReporter reporter = createReporter(config.getReport(), config.getReportInterval())) {
+                        resumeGenomes(a.get(1), reporter);
+                    }
+                    break;
+
+                default:
+                    try (GenerationReporter reporter = createReporter(config.getReport(), config.getReportInterval())) {
+                        evolveGenomes(config, reporter);
+                    }
+            }
         }
         catch (Exception e) {
             e.printStackTrace();
         }
 
     }
-}
 
+
+    /********************************************************************
+     * Turns on SolverMetrics & registers its MBean unless mode is "off".
+     * A number K also prints what changed to stderr every K seconds.
+     *******************************************************************/
+    private static void startMetrics(String mode) throws JMException {
+
+        if (mode.equals("off")) return;
+
+        SolverMetrics.register();
+        SolverMetrics.get().setEnabled(true);
+
+        if (!mode.equals("jmx")) {
+            SolverMetrics.get().every(Integer.parseInt(mode), TimeUnit.SECONDS,
+                    snapshot -> System.err.println("metrics " + snapshot));
+        }
+
+    }
+
+
+    /********************************************************************
+     * Checks a command's positional arguments & copies those that are
+     * config parameters into config. Seeds default to 42 for the commands
+     * that always used it, so their output stays comparable.
+     *******************************************************************/
+    private static void applyArguments(SolverConfig config, String command, List<String> a) {
+
+        switch (command) {
+            case "evolve":
+                requireArguments(a, 1, 5, command);
+                if (a.size() > 1) config.set("seed", a.get(1));
+                if (a.size() > 2) config.set("checkpoint", a.get(2));
+                if (a.size() > 3) config.set("report", a.get(3));
+                if (a.size() > 4) config.set("local-search", a.get(4));
+                break;
+
+            case "resume":
+                requireArguments(a, 2, 3, command);
+                if (a.size() > 2) config.set("report", a.get(2));
+                break;
+
+            case "batch":
+                requireArguments(a, 3, 5, command);
+                if (a.size() > 3) config.set("engine", a.get(3));
+                if (a.size() > 4) config.set("seed", a.get(4));
+                if (config.getSeed() == null) config.set("seed", "42");
+                break;
+
+            case "trace":
+                requireArguments(a, 2, 3, command);
+                config.set("seed", a.get(1));
+                if (a.size() > 2 && !a.get(2).matches("\\d+")) {
+                    throw new IllegalArgumentException("trace generations must be a number");
+                }
+                break;
+
+            case "serve":
+                requireArguments(a, 1, 2, command);
+                if (a.size() > 1) config.set("port", a.get(1));
+                break;
+
+            case "load":
+                requireArguments(a, 2, 6, command);
+                for (int i = 2; i < Math.min(a.size(), 5); i++) {
+                    if (!a.get(i).matches("\\d+")) throw new IllegalArgumentException(
+                            "load connections, requests & window must be numbers");
+                }
+                break;
+
+            case "exact":
+            case "dlx":
+                requireArguments(a, 1, 2, command);
+                if (a.size() > 1) config.set("n", a.get(1));
+                break;
+
+            case "experiment":
+                requireArguments(a, 1, 2, command);
+                if (a.size() > 1) config.set("threads", a.get(1));
+                else if (!config.isSet("threads")) config.set("threads",
+                        Integer.toString(Runtime.getRuntime().availableProcessors()));
+                if (config.getSeed() == null) config.set("seed", "42");
+                break;
+
+            case "scaling":
+            case "benchmark":
+            case "islands":
+                requireArguments(a, 1, 1, command);
+                if (command.equals("scaling") && config.getSeed() == null) config.set("seed", "42");
+                break;
+
+            default:
+                throw new IllegalArgumentException("unknown command: " + command);
+        }
+
+    }
+
+
+    private static void requireArguments(List<String> a, int min, int max, String command) {
+        if (a.size() < min || a.size() > max) throw new IllegalArgumentException(
+                "wrong number of arguments for " + command);
+    }
+
+}
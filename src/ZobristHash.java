@@ -0,0 +1,42 @@
+/************************************************************************************
+ * Zobrist-style 64-bit board hashes. A board's hash is the XOR of one key for
+ * each (cell, value) pair on it, so changing a cell only XORs out its old key &
+ * XORs in the new one.
+ *
+ * Keys are not stored in a table, which would need N^6 longs; each one is
+ * computed from its cell & value with the SplitMix64 finalizer, so the hash of
+ * a board is the same in every run.
+ ***********************************************************************************/
+public final class ZobristHash {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private ZobristHash() {
+    }
+
+
+    /********************************************************************************
+     * The key of a value in the cell at offset, on a board with nSq values.
+     *******************************************************************************/
+    public static long key(int offset, int value, int nSq) {
+
+        long z = (offset * (long) (nSq + 1) + value + 1) * GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+
+    /********************************************************************************
+     * The hash of a row-major board from scratch.
+     *******************************************************************************/
+    public static long hash(byte[] cells, int nSq) {
+
+        long hash = 0;
+        for (int i = 0; i < cells.length; i++) {
+            hash ^= key(i, cells[i] & 0xFF, nSq);
+        }
+        return hash;
+    }
+
+}